@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Compares the startup of the plain jar with the optimized startup of the Docker image: Spring AOT, an AppCDS
+# archive and the prod profile. Needs a jar built with ./mvnw -P aot package and the database of the datasource
+# settings (docker compose up -d db).
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+
+RUNS=${1:-5}
+JAR=$(ls target/*.jar | grep -v -- '-plain.jar' | head -1)
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+# Same layout and training run as the Dockerfile
+java -Djarmode=tools -jar "$JAR" extract --destination "$WORK/app" > /dev/null
+APP="$WORK/app/$(basename "$JAR")"
+java -XX:ArchiveClassesAtExit="$WORK/app.jsa" -Dspring.aot.enabled=true -Dspring.profiles.active=prod \
+    -Dspring.context.exit=onRefresh \
+    -Dspring.flyway.enabled=false -Dspring.jpa.hibernate.ddl-auto=none \
+    -Dspring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false \
+    -jar "$APP" > "$WORK/training.log" 2>&1
+
+# Median of the numbers on standard input
+median() {
+    sort -n | awk '{ value[NR] = $1 } END { printf "%5.2fs", value[int((NR + 1) / 2)] }'
+}
+
+# Starts the application RUNS times with the given java arguments and prints the median time to started, as
+# reported by Spring Boot, and the median time since the JVM was launched
+measure() {
+    local name=$1
+    shift
+    local times="$WORK/$name.times"
+    for run in $(seq "$RUNS"); do
+        local log="$WORK/$name-$run.log"
+        java -Dserver.port=0 "$@" > "$log" 2>&1 &
+        local pid=$!
+        until grep -q 'Started WarehouseApplication' "$log"; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "$name failed to start, see below" >&2
+                cat "$log" >&2
+                exit 1
+            fi
+            sleep 0.05
+        done
+        kill "$pid"
+        wait "$pid" || true
+        sed -n 's/.*Started WarehouseApplication in \([0-9.]*\) seconds (process running for \([0-9.]*\)).*/\1 \2/p' \
+            "$log" >> "$times"
+    done
+    printf '%-10s started in %s, process running for %s (median of %d runs)\n' "$name" \
+        "$(cut -d' ' -f1 "$times" | median)" "$(cut -d' ' -f2 "$times" | median)" "$RUNS"
+}
+
+measure current -jar "$JAR"
+measure optimized -XX:SharedArchiveFile="$WORK/app.jsa" -Dspring.aot.enabled=true -Dspring.profiles.active=prod \
+    -jar "$APP"
@@ -0,0 +1,81 @@
+package com.warehouse.warehouse.benchmark;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+import com.warehouse.warehouse.Dto.DealsDto;
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.utils.DealCsvDecoder;
+import com.warehouse.warehouse.utils.DealRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a whole CSV file: OpenCSV into {@link DealsDto} against the fast decoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvDecodingBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"0.0", "0.05"})
+    private double invalidRatio;
+
+    @Param({"0.0", "0.05"})
+    private double duplicateRatio;
+
+    private byte[] csv;
+
+    @Setup
+    public void setup() {
+        csv = DealCsvGenerator.generate(rows, invalidRatio, duplicateRatio);
+    }
+
+    @Benchmark
+    public void openCsvDealsDto(Blackhole blackhole) {
+        Iterator<DealsDto> dtos = new CsvToBeanBuilder<DealsDto>(
+                new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))
+                .withType(DealsDto.class)
+                .withIgnoreLeadingWhiteSpace(true)
+                .build()
+                .iterator();
+        while (dtos.hasNext()) {
+            blackhole.consume(dtos.next());
+        }
+    }
+
+    @Benchmark
+    public void fastDecoderRows(Blackhole blackhole) {
+        DealCsvDecoder decoder = new DealCsvDecoder(new ByteArrayInputStream(csv));
+        decoder.readHeader();
+        DealRow row = new DealRow();
+        while (decoder.read(row)) {
+            blackhole.consume(row.getAmountUnscaled());
+            blackhole.consume(row.getAmountScale());
+        }
+    }
+
+    @Benchmark
+    public void fastDecoderDeals(Blackhole blackhole) {
+        DealCsvDecoder decoder = new DealCsvDecoder(new ByteArrayInputStream(csv));
+        decoder.readHeader();
+        Deal deal;
+        while ((deal = decoder.next()) != null) {
+            blackhole.consume(deal);
+        }
+    }
+}
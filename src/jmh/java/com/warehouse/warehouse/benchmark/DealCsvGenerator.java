@@ -0,0 +1,43 @@
+package com.warehouse.warehouse.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Builds deterministic deal CSV files with a given share of invalid and in-file duplicate rows.
+ */
+final class DealCsvGenerator {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "CHF", "AUD", "CAD", "SEK", "NOK", "MAD"};
+    private static final String[] INVALID_FIELDS = {"ZZZ", "XX", "-12.5", "2999-01-01T00:00:00"};
+
+    private DealCsvGenerator() {
+    }
+
+    static byte[] generate(int rows, double invalidRatio, double duplicateRatio) {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder csv = new StringBuilder(rows * 56).append("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        int unique = 0;
+        for (int i = 0; i < rows; i++) {
+            boolean duplicate = unique > 0 && random.nextDouble() < duplicateRatio;
+            String dealId = "DEAL-" + (duplicate ? random.nextInt(unique) : unique++);
+            String from = CURRENCIES[random.nextInt(CURRENCIES.length)];
+            String to = CURRENCIES[random.nextInt(CURRENCIES.length)];
+            String timestamp = String.format("2024-%02d-%02dT%02d:%02d:%02d.%03d", 1 + random.nextInt(12),
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000));
+            String amount = String.format("%d.%02d", 1 + random.nextInt(1_000_000), random.nextInt(100));
+
+            if (random.nextDouble() < invalidRatio) {
+                switch (random.nextInt(INVALID_FIELDS.length)) {
+                    case 0 -> from = INVALID_FIELDS[0];
+                    case 1 -> to = INVALID_FIELDS[1];
+                    case 2 -> amount = INVALID_FIELDS[2];
+                    default -> timestamp = INVALID_FIELDS[3];
+                }
+            }
+            csv.append(dealId).append(',').append(from).append(',').append(to).append(',')
+                    .append(timestamp).append(',').append(amount).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
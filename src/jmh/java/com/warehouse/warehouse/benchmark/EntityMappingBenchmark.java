@@ -0,0 +1,53 @@
+package com.warehouse.warehouse.benchmark;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+import com.warehouse.warehouse.Dto.DealsDto;
+import com.warehouse.warehouse.models.Deal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping decoded {@link DealsDto}s to entities with {@link Deal#toEntity}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntityMappingBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"0.0", "0.05"})
+    private double invalidRatio;
+
+    private List<DealsDto> dtos;
+
+    @Setup
+    public void setup() {
+        byte[] csv = DealCsvGenerator.generate(rows, invalidRatio, 0);
+        dtos = new CsvToBeanBuilder<DealsDto>(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))
+                .withType(DealsDto.class)
+                .build()
+                .parse();
+    }
+
+    @Benchmark
+    public void toEntity(Blackhole blackhole) {
+        for (DealsDto dto : dtos) {
+            blackhole.consume(Deal.toEntity(dto));
+        }
+    }
+}
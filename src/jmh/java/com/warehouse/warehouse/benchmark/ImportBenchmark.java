@@ -0,0 +1,83 @@
+package com.warehouse.warehouse.benchmark;
+
+import com.warehouse.warehouse.WarehouseApplication;
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.services.DealService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link DealService#importCsv} into an embedded H2 database, starting from an empty table each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImportBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"0.0", "0.05"})
+    private double invalidRatio;
+
+    @Param({"0.0", "0.05"})
+    private double duplicateRatio;
+
+    @Param({"false", "true"})
+    private boolean pipeline;
+
+    private ConfigurableApplicationContext context;
+    private DealService dealService;
+    private JdbcTemplate jdbcTemplate;
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(WarehouseApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:ImportBenchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.auto_quote_keyword=true",
+                        "logging.level.root=WARN",
+                        "deals.import.filter.enabled=false",
+                        "deals.import.pipeline.enabled=" + pipeline)
+                .run();
+        dealService = context.getBean(DealService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        csv = DealCsvGenerator.generate(rows, invalidRatio, duplicateRatio);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearDeals() {
+        jdbcTemplate.update("DELETE FROM deals");
+    }
+
+    @Benchmark
+    public ResultDto importCsv() {
+        return dealService.importCsv(new ByteArrayInputStream(csv), dealService.newContext(null));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+}
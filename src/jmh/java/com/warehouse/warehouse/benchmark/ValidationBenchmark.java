@@ -0,0 +1,76 @@
+package com.warehouse.warehouse.benchmark;
+
+import com.warehouse.warehouse.config.CurrencyProperties;
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import com.warehouse.warehouse.utils.DealCsvDecoder;
+import com.warehouse.warehouse.validation.DealValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row validation with {@link DealValidator#validate} and the currency lookup on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidationBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"0.0", "0.05"})
+    private double invalidRatio;
+
+    private CurrencyCsvReader currencies;
+    private DealValidator validator;
+    private List<Deal> deals;
+    private String[] currencyCodes;
+
+    @Setup
+    public void setup() {
+        currencies = new CurrencyCsvReader(new CurrencyProperties());
+        validator = new DealValidator(currencies);
+
+        DealCsvDecoder decoder = new DealCsvDecoder(new ByteArrayInputStream(
+                DealCsvGenerator.generate(rows, invalidRatio, 0)));
+        decoder.readHeader();
+        deals = new ArrayList<>(rows);
+        Deal deal;
+        while ((deal = decoder.next()) != null) {
+            deals.add(deal);
+        }
+
+        currencyCodes = new String[deals.size() * 2];
+        for (int i = 0; i < deals.size(); i++) {
+            currencyCodes[2 * i] = deals.get(i).getFromCurrency();
+            currencyCodes[2 * i + 1] = deals.get(i).getToCurrency();
+        }
+    }
+
+    @Benchmark
+    public void validate(Blackhole blackhole) {
+        for (Deal deal : deals) {
+            blackhole.consume(validator.validate(deal));
+        }
+    }
+
+    @Benchmark
+    public void isValidCurrency(Blackhole blackhole) {
+        for (String code : currencyCodes) {
+            blackhole.consume(currencies.isValid(code));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.warehouse.warehouse.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ChunkResultDto {
+
+    private int chunk;
+    private long firstRow;
+    private long lastRow;
+    private int rows;
+    private String error;
+}
@@ -0,0 +1,21 @@
+package com.warehouse.warehouse.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class DealDto {
+
+    private long id;
+    private String dealId;
+    private String fromCurrency;
+    private String toCurrency;
+    private LocalDateTime timestamp;
+    private BigDecimal amount;
+}
@@ -0,0 +1,22 @@
+package com.warehouse.warehouse.Dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DealPageDto {
+
+    private List<DealDto> deals;
+
+    /**
+     * Cursor of the next page, or null on the last page.
+     */
+    private String next;
+}
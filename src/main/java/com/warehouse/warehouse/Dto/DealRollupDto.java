@@ -0,0 +1,22 @@
+package com.warehouse.warehouse.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class DealRollupDto {
+
+    private String fromCurrency;
+    private String toCurrency;
+    private LocalDateTime bucket;
+    private long count;
+    private BigDecimal sum;
+    private BigDecimal min;
+    private BigDecimal max;
+}
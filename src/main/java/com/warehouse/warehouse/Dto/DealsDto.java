@@ -19,6 +19,9 @@ public class DealsDto {
     @CsvBindByName(column = "timestamp", required = true)
     private String timestamp;
 
+    /**
+     * Kept as text, so the amount reaches its minor units without going through a binary float.
+     */
     @CsvBindByName(column = "amount", required = true)
-    private Float amount;
+    private String amount;
 }
\ No newline at end of file
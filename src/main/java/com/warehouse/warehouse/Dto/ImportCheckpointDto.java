@@ -0,0 +1,25 @@
+package com.warehouse.warehouse.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class ImportCheckpointDto {
+
+    private String key;
+    private String engine;
+    private long byteOffset;
+    private long rows;
+    private int chunks;
+    private int saved;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private boolean completed;
+    private Instant updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.warehouse.warehouse.Dto;
+
+public enum ImportErrorCode {
+
+    /**
+     * The dealId already appeared earlier in the same file.
+     */
+    DUPLICATE_IN_FILE,
+
+    /**
+     * The dealId is already stored.
+     */
+    ALREADY_STORED,
+
+    /**
+     * The row failed validation.
+     */
+    INVALID_DEAL,
+
+    /**
+     * The chunk holding the row failed to persist and was rolled back.
+     */
+    CHUNK_FAILED
+}
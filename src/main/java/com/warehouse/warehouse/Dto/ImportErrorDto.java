@@ -0,0 +1,20 @@
+package com.warehouse.warehouse.Dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportErrorDto {
+
+    private long row;
+    private String dealId;
+    private ImportErrorCode code;
+    private String message;
+}
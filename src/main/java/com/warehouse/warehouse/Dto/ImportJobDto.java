@@ -0,0 +1,28 @@
+package com.warehouse.warehouse.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class ImportJobDto {
+
+    private UUID id;
+    private String status;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long rowsProcessed;
+    private int saved;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private double rowsPerSecond;
+    private String error;
+    private ResultDto result;
+}
@@ -1,5 +1,6 @@
 package com.warehouse.warehouse.Dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,10 +10,41 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ResultDto {
 
+    /**
+     * Archive entry this result belongs to, for the per-entry results of an archive import.
+     */
+    private String entry;
+
     private int saved;
     private int duplicates;
     private int invalid;
-    private List<String> errors;
-}
\ No newline at end of file
+    private int failed;
+    private int chunks;
+    private List<ChunkResultDto> failedChunks;
+    private List<ImportErrorDto> errors;
+    private boolean errorsTruncated;
+    private String reportUrl;
+
+    /**
+     * Rows a validate-only run checked, only the sampled ones when it sampled the file.
+     */
+    private Long checkedRows;
+
+    /**
+     * Why a validate-only run stopped before the end of the file.
+     */
+    private String stopReason;
+
+    /**
+     * Why an archive entry could not be imported.
+     */
+    private String error;
+
+    /**
+     * Per-entry results of an archive import; the enclosing result holds their totals.
+     */
+    private List<ResultDto> entries;
+}
@@ -0,0 +1,18 @@
+package com.warehouse.warehouse.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class RollupRebuildDto {
+
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private int buckets;
+    private long tookMillis;
+}
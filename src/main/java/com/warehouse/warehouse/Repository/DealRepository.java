@@ -2,9 +2,17 @@ package com.warehouse.warehouse.Repository;
 
 import com.warehouse.warehouse.models.Deal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Set;
+
 @Repository
 public interface DealRepository extends JpaRepository<Deal, Long> {
     boolean existsByDealId(String dealId);
+
+    @Query("select d.dealId from Deal d where d.dealId in :dealIds")
+    Set<String> findExistingDealIds(@Param("dealIds") Collection<String> dealIds);
 }
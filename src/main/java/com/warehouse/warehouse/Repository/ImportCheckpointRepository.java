@@ -0,0 +1,9 @@
+package com.warehouse.warehouse.Repository;
+
+import com.warehouse.warehouse.models.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+}
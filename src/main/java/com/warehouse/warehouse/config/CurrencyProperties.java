@@ -0,0 +1,34 @@
+package com.warehouse.warehouse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "deals.currencies")
+public class CurrencyProperties {
+
+    /**
+     * Which currency codes are accepted.
+     */
+    private Source source = Source.ISO;
+
+    /**
+     * Classpath resource listing the accepted codes, one per line, when {@code source} is FILE.
+     */
+    private String file = "valid-currencies.txt";
+
+    public enum Source {
+
+        /**
+         * Every ISO 4217 code known to the JDK.
+         */
+        ISO,
+
+        /**
+         * Only the codes listed in {@link #file}.
+         */
+        FILE
+    }
+}
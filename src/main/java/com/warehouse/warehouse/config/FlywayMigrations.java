@@ -0,0 +1,28 @@
+package com.warehouse.warehouse.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the schema migrations at startup unless {@code spring.flyway.enabled} is false. With Spring AOT the Flyway
+ * beans are decided when the jar is built, so the property no longer removes them at runtime; this keeps it working
+ * for runs that must not touch the database, such as the class-data sharing training run of the Docker image.
+ */
+@Component
+public class FlywayMigrations implements FlywayMigrationStrategy {
+
+    private final boolean enabled;
+
+    public FlywayMigrations(@Value("${spring.flyway.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void migrate(Flyway flyway) {
+        if (enabled) {
+            flyway.migrate();
+        }
+    }
+}
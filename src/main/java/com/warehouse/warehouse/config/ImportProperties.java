@@ -0,0 +1,300 @@
+package com.warehouse.warehouse.config;
+
+import com.warehouse.warehouse.services.IngestEngine;
+import com.warehouse.warehouse.utils.CsvDecoder;
+import lombok.Data;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "deals.import")
+public class ImportProperties {
+
+    /**
+     * Number of CSV rows buffered before they are validated and persisted together.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * JDBC batch size used by Hibernate when flushing a chunk, wired into {@code hibernate.jdbc.batch_size}.
+     */
+    private int jdbcBatchSize = 500;
+
+    /**
+     * Maximum number of dealIds sent in one duplicate lookup query.
+     */
+    private int dedupBatchSize = 1000;
+
+    /**
+     * Ingest engine used when a request does not choose one.
+     */
+    private IngestEngine engine = IngestEngine.JPA;
+
+    /**
+     * CSV decoder used for uploads.
+     */
+    private CsvDecoder decoder = CsvDecoder.FAST;
+
+    private Pipeline pipeline = new Pipeline();
+
+    private Jobs jobs = new Jobs();
+
+    private Reports reports = new Reports();
+
+    private Filter filter = new Filter();
+
+    private Archive archive = new Archive();
+
+    private Checkpoints checkpoints = new Checkpoints();
+
+    private Rollups rollups = new Rollups();
+
+    private InFileDedup inFileDedup = new InFileDedup();
+
+    private Admission admission = new Admission();
+
+    private Distributed distributed = new Distributed();
+
+    private Validation validation = new Validation();
+
+    @Data
+    public static class Pipeline {
+
+        /**
+         * Validates chunks on a worker pool while the next chunks are read and earlier ones persisted.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of validator workers; 0 uses one per available core.
+         */
+        private int workers = 0;
+
+        /**
+         * Maximum number of chunks of one import that are read but not yet persisted.
+         */
+        private int queueCapacity = 8;
+    }
+
+    @Data
+    public static class Jobs {
+
+        /**
+         * Number of background imports running at the same time.
+         */
+        private int maxConcurrent = 2;
+
+        /**
+         * Number of submitted imports waiting for a free slot before new ones are rejected.
+         */
+        private int queueCapacity = 16;
+
+        /**
+         * Interval between two progress events on the SSE endpoint.
+         */
+        private Duration progressInterval = Duration.ofSeconds(1);
+
+        /**
+         * How long finished jobs stay available for polling.
+         */
+        private Duration retention = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Reports {
+
+        /**
+         * Maximum number of row errors returned inline in an import result; the rest are only in the report.
+         */
+        private int inlineErrors = 100;
+
+        /**
+         * Directory holding the NDJSON error reports.
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/deals-import-reports";
+
+        /**
+         * How long error reports are kept for download.
+         */
+        private Duration retention = Duration.ofHours(24);
+    }
+
+    @Data
+    public static class Filter {
+
+        /**
+         * Skips the stored-dealId lookup for deals the in-memory Bloom filter knows are new.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of stored deals the filter is sized for; beyond it the false-positive rate grows.
+         */
+        private long expectedDeals = 10_000_000;
+
+        /**
+         * Target false-positive rate at {@code expectedDeals}.
+         */
+        private double falsePositiveRate = 0.01;
+
+        /**
+         * Threads scanning the deals table at startup; 0 uses one per available core.
+         */
+        private int warmupThreads = 0;
+
+        /**
+         * Number of ids scanned by one warm-up query.
+         */
+        private int warmupRangeSize = 100_000;
+
+        /**
+         * File the filter is saved to on shutdown and restored from at startup; empty disables snapshots.
+         */
+        private String snapshotFile = "";
+    }
+
+    @Data
+    public static class Archive {
+
+        /**
+         * Number of ZIP entries imported at the same time, shared by all archive uploads.
+         */
+        private int parallelism = 4;
+
+        /**
+         * Maximum number of CSV entries accepted in one archive.
+         */
+        private int maxEntries = 1000;
+    }
+
+    @Data
+    public static class Checkpoints {
+
+        /**
+         * Directory holding, per resumable import, the dealIds seen so far in its file. Must be storage shared by
+         * every instance when there are several, as a resumed run may land on any of them.
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/deals-import-checkpoints";
+    }
+
+    @Data
+    public static class Rollups {
+
+        /**
+         * Adds the deals of every committed chunk to the hourly currency-pair rollups.
+         */
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class InFileDedup {
+
+        /**
+         * Directory the dealIds seen in a file are memory-mapped from once they outgrow {@code heapArenaSize};
+         * empty keeps them all on the heap.
+         */
+        private String spillDirectory = "";
+
+        /**
+         * Bytes of dealIds per import kept on the heap before the rest spills to {@code spillDirectory}.
+         */
+        private DataSize heapArenaSize = DataSize.ofMegabytes(256);
+    }
+
+    @Data
+    public static class Admission {
+
+        /**
+         * Limits the uploads imported at the same time and the heap they may reserve.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of uploads imported at the same time, background jobs included.
+         */
+        private int maxConcurrent = 4;
+
+        /**
+         * Number of uploads waiting for a slot or memory before new ones are rejected right away.
+         */
+        private int maxQueued = 16;
+
+        /**
+         * How long an upload waits in the queue before it is rejected.
+         */
+        private Duration queueTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Retry-After sent with rejected uploads.
+         */
+        private Duration retryAfter = Duration.ofSeconds(30);
+
+        /**
+         * Heap shared by all running imports: chunk buffers and the dealIds seen in their files.
+         */
+        private DataSize memoryBudget = DataSize.ofMegabytes(1024);
+
+        /**
+         * Heap one import may use; an import needing more fails.
+         */
+        private DataSize memoryPerImport = DataSize.ofMegabytes(256);
+
+        /**
+         * Rows one import may read before it fails; 0 means no limit.
+         */
+        private long maxRowsPerImport = 0;
+    }
+
+    @Data
+    public static class Distributed {
+
+        /**
+         * Runs workers importing the work units of distributed imports, whichever instance they were uploaded to.
+         * Distributed uploads wait until an instance with workers picks them up.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of work units this instance imports at the same time.
+         */
+        private int workers = 2;
+
+        /**
+         * Number of CSV rows in one work unit.
+         */
+        private int unitRows = 50_000;
+
+        /**
+         * Interval at which idle workers look for work units.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * How long a claimed work unit stays with its worker without a heartbeat before another worker takes it over.
+         */
+        private Duration lease = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Validation {
+
+        /**
+         * Row errors after which a validate-only run stops; 0 means no limit. A request may set its own.
+         */
+        private int maxErrors = 1000;
+
+        /**
+         * Share of checked rows, in percent, that may be rejected before a validate-only run stops; 0 means no limit.
+         */
+        private double maxErrorPercent = 0;
+
+        /**
+         * Rows checked before the error share is looked at, so a few bad rows at the top do not stop the run.
+         */
+        private int minRowsForPercent = 1000;
+    }
+}
@@ -0,0 +1,39 @@
+package com.warehouse.warehouse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Period;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "deals.partitions")
+public class PartitionProperties {
+
+    /**
+     * Maintains the monthly partitions of the deals table on PostgreSQL.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of months after the current one that always have a partition.
+     */
+    private int monthsAhead = 3;
+
+    /**
+     * Age after which a monthly partition is detached from the deals table; zero keeps every partition.
+     */
+    private Period retention = Period.ZERO;
+
+    /**
+     * Drops partitions once detached instead of keeping them as standalone tables.
+     */
+    private boolean dropDetached = false;
+
+    /**
+     * Interval between two maintenance runs, the first one running at startup.
+     */
+    private Duration interval = Duration.ofHours(6);
+}
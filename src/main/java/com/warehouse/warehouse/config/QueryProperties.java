@@ -0,0 +1,26 @@
+package com.warehouse.warehouse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "deals.query")
+public class QueryProperties {
+
+    /**
+     * Number of deals in a page when the request does not ask for a size.
+     */
+    private int defaultPageSize = 100;
+
+    /**
+     * Largest page size a request may ask for.
+     */
+    private int maxPageSize = 1000;
+
+    /**
+     * Rows fetched per round trip while streaming a query result.
+     */
+    private int fetchSize = 1000;
+}
@@ -1,9 +1,16 @@
 package com.warehouse.warehouse.controllers;
 
 import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.services.ArchiveFormat;
+import com.warehouse.warehouse.services.ArchiveImportService;
 import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.IngestEngine;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,11 +24,85 @@ import java.io.IOException;
 public class DealController {
 
 
+    private static final String IMPORT_KEY = "Import-Key";
+
     private final DealService dealService;
+    private final ArchiveImportService archiveImportService;
 
+    /**
+     * Imports an uploaded CSV file or archive. A CSV file becomes a resumable import when an import key is given,
+     * or with {@code resumable=true}, under the SHA-256 of its content.
+     */
     @PostMapping
-    public ResultDto importDeals(@RequestParam("file") MultipartFile file) throws IOException {
-        return dealService.importCsv(file);
+    public ResultDto importDeals(@RequestParam("file") MultipartFile file,
+                                 @RequestParam(value = "engine", required = false) IngestEngine engine,
+                                 @RequestHeader(value = IMPORT_KEY, required = false) String keyHeader,
+                                 @RequestParam(value = "key", required = false) String key,
+                                 @RequestParam(value = "resumable", defaultValue = "false") boolean resumable) throws IOException {
+        ArchiveFormat archive = ArchiveFormat.of(file.getOriginalFilename(), file.getContentType());
+        key = key != null ? key : keyHeader;
+        if (archive != null) {
+            if (key != null || resumable) {
+                throw new IllegalArgumentException("Archives cannot be imported as resumable imports");
+            }
+            return archiveImportService.importArchive(file, archive, engine);
+        }
+        if (key != null || resumable) {
+            return dealService.importResumable(file, key, engine);
+        }
+        return dealService.importCsv(file, engine);
+
+    }
+
+    /**
+     * Checks an uploaded CSV file without importing it: every {@code sample}-th row goes through validation and the
+     * in-file duplicate check, until {@code maxErrors} rows or {@code maxErrorPercent} percent of them are rejected.
+     */
+    @PostMapping("/validate")
+    public ResultDto validateDeals(@RequestParam("file") MultipartFile file,
+                                   @RequestParam(value = "maxErrors", required = false) Integer maxErrors,
+                                   @RequestParam(value = "maxErrorPercent", required = false) Double maxErrorPercent,
+                                   @RequestParam(value = "sample", defaultValue = "1") int sample) throws IOException {
+        return dealService.validateCsv(file, maxErrors, maxErrorPercent, sample);
+    }
+
+    /**
+     * Checks a raw {@code text/csv} request body while it is still arriving, like {@code /stream} imports one, so a
+     * bad feed is rejected without waiting for the rest of it.
+     */
+    @PostMapping("/validate/stream")
+    public ResultDto validateDealStream(HttpServletRequest request,
+                                        @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+                                        @RequestHeader(value = HttpHeaders.CONTENT_DISPOSITION, required = false) String contentDisposition,
+                                        @RequestParam(value = "filename", required = false) String fileName,
+                                        @RequestParam(value = "maxErrors", required = false) Integer maxErrors,
+                                        @RequestParam(value = "maxErrorPercent", required = false) Double maxErrorPercent,
+                                        @RequestParam(value = "sample", defaultValue = "1") int sample) throws IOException {
+        if (fileName == null && contentDisposition != null) {
+            fileName = ContentDisposition.parse(contentDisposition).getFilename();
+        }
+        return dealService.validateCsvStream(request.getInputStream(), request.getContentType(), contentEncoding,
+                fileName, maxErrors, maxErrorPercent, sample);
+    }
 
+    /**
+     * Imports a raw {@code text/csv} request body while it is still arriving, without multipart spooling. With an
+     * import key the import is resumable, and {@code offset} tells where in the file the body starts when only the
+     * rest of an interrupted import is sent.
+     */
+    @PostMapping("/stream")
+    public ResultDto importDealStream(HttpServletRequest request,
+                                      @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+                                      @RequestHeader(value = HttpHeaders.CONTENT_DISPOSITION, required = false) String contentDisposition,
+                                      @RequestParam(value = "filename", required = false) String fileName,
+                                      @RequestParam(value = "engine", required = false) IngestEngine engine,
+                                      @RequestHeader(value = IMPORT_KEY, required = false) String keyHeader,
+                                      @RequestParam(value = "key", required = false) String key,
+                                      @RequestParam(value = "offset", defaultValue = "0") long offset) throws IOException {
+        if (fileName == null && contentDisposition != null) {
+            fileName = ContentDisposition.parse(contentDisposition).getFilename();
+        }
+        return dealService.importCsvStream(request.getInputStream(), request.getContentType(), contentEncoding,
+                fileName, engine, key != null ? key : keyHeader, offset);
     }
 }
\ No newline at end of file
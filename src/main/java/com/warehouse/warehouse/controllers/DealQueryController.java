@@ -0,0 +1,42 @@
+package com.warehouse.warehouse.controllers;
+
+import com.warehouse.warehouse.Dto.DealPageDto;
+import com.warehouse.warehouse.Dto.DealQueryDto;
+import com.warehouse.warehouse.services.DealQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/deals")
+@RequiredArgsConstructor
+public class DealQueryController {
+
+    private final DealQueryService dealQueryService;
+
+    /**
+     * One page of the deals matching the filters; pass the returned {@code next} cursor as {@code after} to get the
+     * following page.
+     */
+    @GetMapping
+    public DealPageDto find(DealQueryDto query,
+                            @RequestParam(value = "after", required = false) String after,
+                            @RequestParam(value = "size", required = false) Integer size) {
+        return dealQueryService.page(query, after, size);
+    }
+
+    /**
+     * Every deal matching the filters as NDJSON, streamed while it is read.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(DealQueryDto query) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> dealQueryService.stream(query, out));
+    }
+}
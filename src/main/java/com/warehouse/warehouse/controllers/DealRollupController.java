@@ -0,0 +1,46 @@
+package com.warehouse.warehouse.controllers;
+
+import com.warehouse.warehouse.Dto.DealRollupDto;
+import com.warehouse.warehouse.Dto.RollupRebuildDto;
+import com.warehouse.warehouse.services.DealRollups;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/deals/rollups")
+@RequiredArgsConstructor
+public class DealRollupController {
+
+    private final DealRollups dealRollups;
+
+    /**
+     * Hourly deal counts and amount statistics per currency pair, read from the rollups only.
+     */
+    @GetMapping
+    public List<DealRollupDto> find(@RequestParam(value = "fromCurrency", required = false) String fromCurrency,
+                                    @RequestParam(value = "toCurrency", required = false) String toCurrency,
+                                    @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                    @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return dealRollups.find(fromCurrency, toCurrency, from, to);
+    }
+
+    /**
+     * Recomputes the rollups of the given hours, or of every deal when no range is given, from the deals table.
+     */
+    @PostMapping("/rebuild")
+    public RollupRebuildDto rebuild(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                    @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return dealRollups.rebuild(from, to);
+    }
+}
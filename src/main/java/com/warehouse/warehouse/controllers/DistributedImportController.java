@@ -0,0 +1,47 @@
+package com.warehouse.warehouse.controllers;
+
+import com.warehouse.warehouse.Dto.ImportJobDto;
+import com.warehouse.warehouse.services.DistributedImports;
+import com.warehouse.warehouse.services.IngestEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/csv/import/distributed")
+@RequiredArgsConstructor
+public class DistributedImportController {
+
+    private final DistributedImports distributedImports;
+
+    @PostMapping
+    public ResponseEntity<ImportJobDto> submit(@RequestParam("file") MultipartFile file,
+                                               @RequestParam(value = "engine", required = false) IngestEngine engine) throws IOException {
+        UUID id = distributedImports.submit(file, engine);
+        return ResponseEntity
+                .accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").build(id))
+                .body(distributedImports.get(id));
+    }
+
+    @GetMapping("/{id}")
+    public ImportJobDto status(@PathVariable UUID id) {
+        return distributedImports.get(id);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ImportJobDto> cancel(@PathVariable UUID id) {
+        return ResponseEntity.accepted().body(distributedImports.cancel(id));
+    }
+}
@@ -0,0 +1,25 @@
+package com.warehouse.warehouse.controllers;
+
+import com.warehouse.warehouse.Dto.ImportCheckpointDto;
+import com.warehouse.warehouse.services.ImportCheckpoints;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/csv/import/checkpoints")
+@RequiredArgsConstructor
+public class ImportCheckpointController {
+
+    private final ImportCheckpoints importCheckpoints;
+
+    /**
+     * Progress of a resumable import; {@code byteOffset} is where a client sending only the rest of the file starts.
+     */
+    @GetMapping("/{key}")
+    public ImportCheckpointDto find(@PathVariable String key) {
+        return importCheckpoints.find(key);
+    }
+}
@@ -0,0 +1,55 @@
+package com.warehouse.warehouse.controllers;
+
+import com.warehouse.warehouse.Dto.ImportJobDto;
+import com.warehouse.warehouse.services.ImportJob;
+import com.warehouse.warehouse.services.ImportJobService;
+import com.warehouse.warehouse.services.IngestEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/csv/import/jobs")
+@RequiredArgsConstructor
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+
+    @PostMapping
+    public ResponseEntity<ImportJobDto> submit(@RequestParam("file") MultipartFile file,
+                                               @RequestParam(value = "engine", required = false) IngestEngine engine) throws IOException {
+        ImportJob job = importJobService.submit(file, engine);
+        return ResponseEntity
+                .accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").build(job.getId()))
+                .body(importJobService.toDto(job));
+    }
+
+    @GetMapping("/{id}")
+    public ImportJobDto status(@PathVariable UUID id) {
+        return importJobService.toDto(importJobService.get(id));
+    }
+
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable UUID id) {
+        return importJobService.subscribe(id);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ImportJobDto> cancel(@PathVariable UUID id) {
+        return ResponseEntity.accepted().body(importJobService.toDto(importJobService.cancel(id)));
+    }
+}
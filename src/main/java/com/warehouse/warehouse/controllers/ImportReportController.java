@@ -0,0 +1,33 @@
+package com.warehouse.warehouse.controllers;
+
+import com.warehouse.warehouse.services.ImportReports;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/csv/import/reports")
+@RequiredArgsConstructor
+public class ImportReportController {
+
+    private final ImportReports importReports;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Resource> download(@PathVariable UUID id) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("import-errors-" + id + ".ndjson").build().toString())
+                .body(new FileSystemResource(importReports.find(id)));
+    }
+}
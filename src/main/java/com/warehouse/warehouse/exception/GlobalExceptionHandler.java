@@ -2,14 +2,17 @@ package com.warehouse.warehouse.exception;
 
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -19,17 +22,67 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), request.getRequestURI());
     }
 
+    @ExceptionHandler(ImportJobNotFoundException.class)
+    public ResponseEntity<Object> handleJobNotFound(ImportJobNotFoundException ex, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(ImportReportNotFoundException.class)
+    public ResponseEntity<Object> handleReportNotFound(ImportReportNotFoundException ex, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(ImportCheckpointNotFoundException.class)
+    public ResponseEntity<Object> handleCheckpointNotFound(ImportCheckpointNotFoundException ex, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(ImportInProgressException.class)
+    public ResponseEntity<Object> handleInProgress(ImportInProgressException ex, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.CONFLICT, ex.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(ImportRejectedException.class)
+    public ResponseEntity<Object> handleImportRejected(ImportRejectedException ex, HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())));
+        return buildErrorResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), request.getRequestURI(), headers);
+    }
+
+    @ExceptionHandler(ImportLimitExceededException.class)
+    public ResponseEntity<Object> handleLimitExceeded(ImportLimitExceededException ex, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.PAYLOAD_TOO_LARGE, ex.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Object> handleUploadTooLarge(MaxUploadSizeExceededException ex, HttpServletRequest request) {
+        String message = ex.getMaxUploadSize() > 0
+                ? "Upload exceeds the limit of " + ex.getMaxUploadSize() + " bytes"
+                : "Upload exceeds the size limit";
+        return buildErrorResponse(HttpStatus.PAYLOAD_TOO_LARGE, message, request.getRequestURI());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Object> handleRejected(RejectedExecutionException ex, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, "Import queue is full, try again later", request.getRequestURI());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAll(Exception ex, HttpServletRequest request) {
         return buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Something went wrong", request.getRequestURI());
     }
 
     private ResponseEntity<Object> buildErrorResponse(HttpStatus status, String message, String path) {
+        return buildErrorResponse(status, message, path, new HttpHeaders());
+    }
+
+    private ResponseEntity<Object> buildErrorResponse(HttpStatus status, String message, String path,
+                                                      HttpHeaders headers) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("timestamp", LocalDateTime.now());
         body.put("status", status.value());
         body.put("error", message);
         body.put("path", path);
-        return new ResponseEntity<>(body, status);
+        return new ResponseEntity<>(body, headers, status);
     }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.warehouse.warehouse.exception;
+
+public class ImportCancelledException extends RuntimeException {
+
+    public ImportCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.warehouse.warehouse.exception;
+
+public class ImportCheckpointNotFoundException extends RuntimeException {
+
+    public ImportCheckpointNotFoundException(String message) {
+        super(message);
+    }
+}
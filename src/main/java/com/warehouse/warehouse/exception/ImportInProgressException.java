@@ -0,0 +1,8 @@
+package com.warehouse.warehouse.exception;
+
+public class ImportInProgressException extends RuntimeException {
+
+    public ImportInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.warehouse.warehouse.exception;
+
+public class ImportLimitExceededException extends RuntimeException {
+
+    public ImportLimitExceededException(String message) {
+        super(message);
+    }
+}
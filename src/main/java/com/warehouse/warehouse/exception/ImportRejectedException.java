@@ -0,0 +1,20 @@
+package com.warehouse.warehouse.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * An import that could not get a slot or memory within the admission limits; the client should retry after
+ * {@code retryAfter}.
+ */
+@Getter
+public class ImportRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ImportRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,8 @@
+package com.warehouse.warehouse.exception;
+
+public class ImportReportNotFoundException extends RuntimeException {
+
+    public ImportReportNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package com.warehouse.warehouse.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Names a currency id stored in {@code deals} and {@code deal_rollups}, for SQL readers joining on it. The
+ * application resolves ids in memory and only keeps this table filled.
+ */
+@Entity
+@Table(name = "currencies")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class CurrencyCode {
+
+    @Id
+    private short id;
+
+    @Column(nullable = false, unique = true, length = 3)
+    private String code;
+}
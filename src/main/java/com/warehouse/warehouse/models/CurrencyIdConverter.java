@@ -0,0 +1,29 @@
+package com.warehouse.warehouse.models;
+
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a currency code as its smallint id, see {@link CurrencyCsvReader}.
+ */
+@Converter
+public class CurrencyIdConverter implements AttributeConverter<String, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(String code) {
+        if (code == null) {
+            return null;
+        }
+        short id = CurrencyCsvReader.id(code);
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid currency code " + code);
+        }
+        return id;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short id) {
+        return id != null ? CurrencyCsvReader.code(id) : null;
+    }
+}
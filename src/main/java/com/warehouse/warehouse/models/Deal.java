@@ -2,6 +2,8 @@ package com.warehouse.warehouse.models;
 
 
 import com.warehouse.warehouse.Dto.DealsDto;
+import com.warehouse.warehouse.utils.Amounts;
+import com.warehouse.warehouse.utils.DealRow;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,8 +11,16 @@ import java.math.BigDecimal;
 
 import java.time.LocalDateTime;
 
+/**
+ * On PostgreSQL the deals table is created by the schema migrations, partitioned by month, with dealId uniqueness
+ * kept by {@code deal_ids}; the constraints and indexes below only shape the schema Hibernate generates elsewhere.
+ * Currencies are stored as smallint ids, see {@link CurrencyIdConverter}.
+ */
 @Entity
-@Table(name = "deals", uniqueConstraints = @UniqueConstraint(columnNames = "dealId"))
+@Table(name = "deals", uniqueConstraints = @UniqueConstraint(columnNames = "dealId"), indexes = {
+        @Index(name = "idx_deals_pair_timestamp", columnList = "fromCurrency, toCurrency, timestamp, id"),
+        @Index(name = "idx_deals_timestamp", columnList = "timestamp, id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -18,23 +28,29 @@ import java.time.LocalDateTime;
 public class Deal {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "deals_seq")
+    @SequenceGenerator(name = "deals_seq", sequenceName = "deals_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
     private String dealId;
 
-    @Column(nullable = false, length = 3)
+    @Convert(converter = CurrencyIdConverter.class)
+    @Column(nullable = false)
     private String fromCurrency;
 
-    @Column(nullable = false, length = 3)
+    @Convert(converter = CurrencyIdConverter.class)
+    @Column(nullable = false)
     private String toCurrency;
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    /**
+     * Amount in minor units of {@code fromCurrency}, see {@link Amounts}.
+     */
     @Column(nullable = false)
-    private Float amount;
+    private long amount;
 
 
     public static Deal toEntity(DealsDto dto) {
@@ -44,7 +60,18 @@ public class Deal {
                 dto.getFromCurrency().toUpperCase(),
                 dto.getToCurrency().toUpperCase(),
                 LocalDateTime.parse(dto.getTimestamp()),
-                dto.getAmount()
+                Amounts.toMinorUnits(new BigDecimal(dto.getAmount().trim()), dto.getFromCurrency())
+        );
+    }
+
+    public static Deal fromRow(DealRow row) {
+        return new Deal(
+                null,
+                row.getDealId(),
+                row.getFromCurrency(),
+                row.getToCurrency(),
+                row.timestamp(),
+                row.amount()
         );
     }
 }
@@ -0,0 +1,33 @@
+package com.warehouse.warehouse.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Count and amount statistics of the deals of one currency pair within one hour, kept up to date by every import.
+ * Amounts are in minor units of {@code fromCurrency}.
+ */
+@Entity
+@Table(name = "deal_rollups", indexes = @Index(name = "idx_deal_rollups_pair_bucket",
+        columnList = "fromCurrency, toCurrency, bucket"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class DealRollup {
+
+    @EmbeddedId
+    private DealRollupKey id;
+
+    @Column(nullable = false)
+    private long dealCount;
+
+    @Column(nullable = false)
+    private long amountSum;
+
+    @Column(nullable = false)
+    private long amountMin;
+
+    @Column(nullable = false)
+    private long amountMax;
+}
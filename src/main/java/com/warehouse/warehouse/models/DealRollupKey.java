@@ -0,0 +1,32 @@
+package com.warehouse.warehouse.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DealRollupKey implements Serializable {
+
+    @Convert(converter = CurrencyIdConverter.class)
+    @Column(nullable = false)
+    private String fromCurrency;
+
+    @Convert(converter = CurrencyIdConverter.class)
+    @Column(nullable = false)
+    private String toCurrency;
+
+    /**
+     * Start of the hour the deals of the rollup fall in.
+     */
+    @Column(nullable = false)
+    private LocalDateTime bucket;
+}
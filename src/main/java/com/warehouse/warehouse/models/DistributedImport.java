@@ -0,0 +1,36 @@
+package com.warehouse.warehouse.models;
+
+import com.warehouse.warehouse.services.IngestEngine;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An upload imported by the workers of every instance, split into {@link ImportUnit}s.
+ */
+@Entity
+@Table(name = "distributed_imports")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class DistributedImport {
+
+    @Id
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private IngestEngine engine;
+
+    private String fileName;
+
+    private int units;
+
+    private boolean cancelled;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,73 @@
+package com.warehouse.warehouse.models;
+
+import com.warehouse.warehouse.services.IngestEngine;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Progress of a resumable import as of its last committed chunk, updated in the same transaction as the chunk.
+ */
+@Entity
+@Table(name = "import_checkpoints")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class ImportCheckpoint {
+
+    @Id
+    @Column(length = 128)
+    private String importKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private IngestEngine engine;
+
+    @Column(nullable = false)
+    private UUID reportId;
+
+    /**
+     * Header line of the file, replayed in front of the remaining bytes on resume.
+     */
+    @Column(length = 4096)
+    private String header;
+
+    /**
+     * Offset in the decoded file of the first row after the last committed chunk.
+     */
+    private long byteOffset;
+
+    private long rowNumber;
+    private int chunks;
+    private int saved;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+
+    private long reportBytes;
+    private long reportEntries;
+
+    /**
+     * Length of the dealId spill file covering the rows up to {@link #byteOffset}.
+     */
+    private long idsBytes;
+
+    /**
+     * Inline row errors of the result, as JSON.
+     */
+    @Column(columnDefinition = "text")
+    private String errors;
+
+    /**
+     * Failed chunks of the result, as JSON.
+     */
+    @Column(columnDefinition = "text")
+    private String failedChunks;
+
+    private boolean completed;
+
+    private Instant updatedAt;
+}
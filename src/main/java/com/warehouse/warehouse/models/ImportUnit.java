@@ -0,0 +1,88 @@
+package com.warehouse.warehouse.models;
+
+import com.warehouse.warehouse.services.ImportJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A range of rows of a distributed import, claimed and imported by one worker at a time. The rows are kept, behind
+ * the header of the file, until the unit is done; its outcome is kept with it until the import expires.
+ */
+@Entity
+@Table(name = "import_units",
+        uniqueConstraints = @UniqueConstraint(name = "uk_import_units_unit", columnNames = {"importId", "unitNo"}),
+        indexes = @Index(name = "idx_import_units_status", columnList = "status"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class ImportUnit {
+
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID importId;
+
+    private int unitNo;
+
+    /**
+     * Row number of the first row of the unit in the file.
+     */
+    private long firstRow;
+
+    private int rowCount;
+
+    /**
+     * Header and rows of the unit as a CSV file; cleared once the unit is done.
+     */
+    @Column(length = 256 * 1024 * 1024)
+    private byte[] payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 9)
+    private ImportJobStatus status;
+
+    /**
+     * Worker holding the unit while it is running.
+     */
+    @Column(length = 128)
+    private String claimedBy;
+
+    /**
+     * Number of times the unit was claimed; a worker whose claim was taken over can no longer update the unit.
+     */
+    private int attempts;
+
+    private Instant startedAt;
+    private Instant heartbeatAt;
+    private Instant finishedAt;
+
+    private long processedRows;
+    private int chunks;
+    private int saved;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+
+    /**
+     * Inline row errors of the unit, as JSON.
+     */
+    @Column(columnDefinition = "text")
+    private String errors;
+
+    /**
+     * Failed chunks of the unit, as JSON.
+     */
+    @Column(columnDefinition = "text")
+    private String failedChunks;
+
+    /**
+     * Why the unit could not be imported.
+     */
+    @Column(length = 1000)
+    private String error;
+}
@@ -0,0 +1,33 @@
+package com.warehouse.warehouse.services;
+
+import java.util.Locale;
+
+public enum ArchiveFormat {
+
+    ZIP,
+    TAR_GZ;
+
+    /**
+     * The archive format of an upload, from its file name or else its content type, or null for anything else.
+     */
+    public static ArchiveFormat of(String fileName, String contentType) {
+        if (fileName != null) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".zip")) {
+                return ZIP;
+            }
+            if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+                return TAR_GZ;
+            }
+            return null;
+        }
+        if (contentType == null) {
+            return null;
+        }
+        return switch (contentType.toLowerCase(Locale.ROOT)) {
+            case "application/zip", "application/x-zip-compressed" -> ZIP;
+            case "application/gzip", "application/x-gzip", "application/x-gtar", "application/x-tgz" -> TAR_GZ;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,259 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.Dto.ChunkResultDto;
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.utils.DealIdSet;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Imports the CSV entries of a ZIP or tar.gz upload, streaming each entry through {@link DealService} without
+ * extracting it. dealIds are deduplicated across all entries of an archive.
+ * <p>
+ * ZIP entries are imported concurrently on a shared pool of {@code deals.import.archive.parallelism} threads; the
+ * compressed archive is kept in a temporary file so entries can be read independently. A tar.gz archive can only
+ * be read front to back, so its entries are imported one after the other.
+ */
+@Slf4j
+@Service
+public class ArchiveImportService {
+
+    private final DealService dealService;
+    private final ImportAdmission importAdmission;
+    private final ImportProperties.Archive properties;
+    private final ExecutorService entryPool;
+
+    public ArchiveImportService(DealService dealService, ImportAdmission importAdmission,
+                                ImportProperties importProperties) {
+        this.dealService = dealService;
+        this.importAdmission = importAdmission;
+        this.properties = importProperties.getArchive();
+        AtomicInteger counter = new AtomicInteger();
+        this.entryPool = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "deal-archive-entry-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ResultDto importArchive(MultipartFile file, ArchiveFormat format, IngestEngine engine) throws IOException {
+        if (file.isEmpty()) {
+            log.warn("File is empty");
+            throw new IllegalArgumentException("File is empty");
+        }
+
+        List<ResultDto> entries;
+        // The compressed size understates the rows, but the check after each chunk grows the reservation. ZIP
+        // entries are imported in parallel, each with its own chunk buffers.
+        int concurrency = format == ArchiveFormat.ZIP ? properties.getParallelism() : 1;
+        try (ImportAdmission.Permit permit = importAdmission.admit(file.getSize(), concurrency);
+             DealIdSet appearedIds = dealService.newAppearedIds()) {
+            entries = format == ArchiveFormat.ZIP
+                    ? importZip(file, engine, appearedIds, permit)
+                    : importTarGz(file, engine, appearedIds, permit);
+        }
+
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Archive contains no CSV files");
+        }
+        ResultDto result = aggregate(entries);
+        log.info("Archive import of {} completed: {} entries, {} saved, {} duplicates, {} invalid, {} failed.",
+                file.getOriginalFilename(), entries.size(), result.getSaved(), result.getDuplicates(),
+                result.getInvalid(), result.getFailed());
+        return result;
+    }
+
+    private List<ResultDto> importZip(MultipartFile file, IngestEngine engine, DealIdSet appearedIds,
+                                      ImportAdmission.Permit permit) throws IOException {
+        Path spooled = Files.createTempFile("deals-archive-", ".zip");
+        try {
+            file.transferTo(spooled);
+            try (ZipFile zip = new ZipFile(spooled.toFile())) {
+                List<ZipEntry> csvEntries = new ArrayList<>();
+                Enumeration<? extends ZipEntry> all = zip.entries();
+                while (all.hasMoreElements()) {
+                    ZipEntry entry = all.nextElement();
+                    if (!entry.isDirectory() && isCsv(entry.getName())) {
+                        checkEntryCount(csvEntries.size() + 1);
+                        csvEntries.add(entry);
+                    }
+                }
+
+                // Running entries hold the read lock; once the archive fails, taking the write lock waits for them
+                ReadWriteLock running = new ReentrantReadWriteLock();
+                AtomicBoolean stopped = new AtomicBoolean();
+                List<Future<ResultDto>> futures = new ArrayList<>(csvEntries.size());
+                for (ZipEntry entry : csvEntries) {
+                    futures.add(entryPool.submit(() -> {
+                        running.readLock().lock();
+                        try {
+                            if (stopped.get()) {
+                                throw new CancellationException("Archive import stopped");
+                            }
+                            try (InputStream in = zip.getInputStream(entry)) {
+                                return importEntry(entry.getName(), in, engine, appearedIds, permit);
+                            }
+                        } finally {
+                            running.readLock().unlock();
+                        }
+                    }));
+                }
+                return await(futures, running, stopped);
+            }
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    private List<ResultDto> importTarGz(MultipartFile file, IngestEngine engine, DealIdSet appearedIds,
+                                        ImportAdmission.Permit permit) throws IOException {
+        List<ResultDto> entries = new ArrayList<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(
+                new GzipCompressorInputStream(new BufferedInputStream(file.getInputStream())))) {
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                if (!entry.isFile() || !isCsv(entry.getName())) {
+                    continue;
+                }
+                checkEntryCount(entries.size() + 1);
+                entries.add(importEntry(entry.getName(), new FilterInputStream(tar) {
+                    @Override
+                    public void close() {
+                        // the archive stream stays open for the next entry
+                    }
+                }, engine, appearedIds, permit));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Imports one entry. A malformed entry is reported in its result instead of failing the whole archive.
+     */
+    private ResultDto importEntry(String name, InputStream in, IngestEngine engine, DealIdSet appearedIds,
+                                  ImportAdmission.Permit permit) {
+        ImportContext context = dealService.newContext(engine, appearedIds);
+        context.admitted(permit);
+        ResultDto result;
+        try {
+            result = dealService.importCsv(in, context);
+        } catch (IllegalArgumentException e) {
+            log.warn("Archive entry {} could not be imported: {}", name, e.getMessage());
+            result = context.toResult();
+            result.setError(e.getMessage());
+        }
+        result.setEntry(name);
+        return result;
+    }
+
+    /**
+     * Collects the results of the entries in order. When one fails, the others are cancelled and waited for, so the
+     * archive, its permit and its dealIds are only released once no entry uses them anymore.
+     */
+    private List<ResultDto> await(List<Future<ResultDto>> futures, ReadWriteLock running, AtomicBoolean stopped)
+            throws IOException {
+        List<ResultDto> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<ResultDto> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            stop(futures, running, stopped);
+            Thread.currentThread().interrupt();
+            throw new IOException("Archive import interrupted", e);
+        } catch (ExecutionException e) {
+            stop(futures, running, stopped);
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    private static void stop(List<Future<ResultDto>> futures, ReadWriteLock running, AtomicBoolean stopped) {
+        stopped.set(true);
+        futures.forEach(future -> future.cancel(true));
+        running.writeLock().lock();
+        running.writeLock().unlock();
+    }
+
+    private ResultDto aggregate(List<ResultDto> entries) {
+        int saved = 0;
+        int duplicates = 0;
+        int invalid = 0;
+        int failed = 0;
+        int chunks = 0;
+        boolean hasErrors = false;
+        List<ChunkResultDto> failedChunks = new ArrayList<>();
+        for (ResultDto entry : entries) {
+            saved += entry.getSaved();
+            duplicates += entry.getDuplicates();
+            invalid += entry.getInvalid();
+            failed += entry.getFailed();
+            chunks += entry.getChunks();
+            failedChunks.addAll(entry.getFailedChunks());
+            hasErrors |= !entry.getErrors().isEmpty() || entry.getError() != null;
+        }
+        return ResultDto.builder().
+                saved(saved).
+                duplicates(duplicates).
+                invalid(invalid).
+                failed(failed).
+                chunks(chunks).
+                failedChunks(failedChunks).
+                errors(List.of()).
+                errorsTruncated(hasErrors).
+                entries(entries).
+                build();
+    }
+
+    private void checkEntryCount(int count) {
+        if (count > properties.getMaxEntries()) {
+            throw new IllegalArgumentException("Archive has more than " + properties.getMaxEntries() + " CSV files");
+        }
+    }
+
+    private static boolean isCsv(String name) {
+        String baseName = name.substring(name.lastIndexOf('/') + 1);
+        return name.toLowerCase(Locale.ROOT).endsWith(".csv")
+                && !baseName.startsWith("._")
+                && !name.startsWith("__MACOSX/");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        entryPool.shutdownNow();
+    }
+}
@@ -0,0 +1,159 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Writes a chunk of deals through PostgreSQL COPY. Rows are streamed into the unlogged {@code deals_staging}
+ * table and merged into {@code deals}, whose insert trigger skips dealIds already claimed in {@code deal_ids}, so the
+ * merge itself tells which dealIds were already stored. {@link #write} must be called inside the chunk transaction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CopyDealWriter {
+
+    private static final String CREATE_STAGING = """
+            CREATE UNLOGGED TABLE IF NOT EXISTS deals_staging (
+                batch_id uuid NOT NULL,
+                deal_id varchar(255) NOT NULL,
+                from_currency smallint NOT NULL,
+                to_currency smallint NOT NULL,
+                "timestamp" timestamp(6) NOT NULL,
+                amount bigint NOT NULL
+            )""";
+
+    private static final String COPY_STAGING = """
+            COPY deals_staging (batch_id, deal_id, from_currency, to_currency, "timestamp", amount)
+            FROM STDIN WITH (FORMAT csv)""";
+
+    private static final String MERGE = """
+            INSERT INTO deals (id, deal_id, from_currency, to_currency, "timestamp", amount)
+            SELECT nextval('deals_seq'), s.deal_id, s.from_currency, s.to_currency, s."timestamp", s.amount
+            FROM deals_staging s
+            WHERE s.batch_id = ?
+            RETURNING deal_id""";
+
+    private static final String SKIP_DUPLICATES = "SET LOCAL deals.skip_duplicate_deal_ids = 'on'";
+
+    private static final String CLEAR_STAGING = "DELETE FROM deals_staging WHERE batch_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean stagingReady;
+
+    /**
+     * Persists {@code deals} and returns the dealIds that were already stored and therefore skipped.
+     */
+    public Set<String> write(List<Deal> deals) {
+        UUID batchId = UUID.randomUUID();
+
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            long copied;
+            try {
+                copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_STAGING, new StringReader(toCsv(batchId, deals)));
+            } catch (IOException e) {
+                throw new SQLException("COPY into deals_staging failed", e);
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(SKIP_DUPLICATES);
+            }
+
+            Set<String> inserted = new HashSet<>();
+            try (PreparedStatement merge = connection.prepareStatement(MERGE)) {
+                merge.setObject(1, batchId);
+                try (ResultSet rs = merge.executeQuery()) {
+                    while (rs.next()) {
+                        inserted.add(rs.getString(1));
+                    }
+                }
+            }
+
+            try (PreparedStatement clear = connection.prepareStatement(CLEAR_STAGING)) {
+                clear.setObject(1, batchId);
+                clear.executeUpdate();
+            }
+
+            log.debug("COPY batch {}: {} staged, {} merged", batchId, copied, inserted.size());
+
+            Set<String> existing = new HashSet<>();
+            for (Deal deal : deals) {
+                if (!inserted.contains(deal.getDealId())) {
+                    existing.add(deal.getDealId());
+                }
+            }
+            return existing;
+        });
+    }
+
+    /**
+     * Creates the staging table if needed. Called once per import, outside the chunk transactions.
+     */
+    public synchronized void prepare() {
+        if (!stagingReady) {
+            try {
+                createStaging();
+            } catch (DataAccessException e) {
+                // IF NOT EXISTS does not guard against another instance creating the table at the same moment
+                log.debug("Staging table created concurrently, checking again: {}", e.getMessage());
+                createStaging();
+            }
+            stagingReady = true;
+        }
+    }
+
+    private void createStaging() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+            }
+            return null;
+        });
+    }
+
+    private static String toCsv(UUID batchId, List<Deal> deals) {
+        StringBuilder csv = new StringBuilder(deals.size() * 80);
+        for (Deal deal : deals) {
+            csv.append(batchId).append(',');
+            appendQuoted(csv, deal.getDealId());
+            csv.append(',').append(CurrencyCsvReader.id(deal.getFromCurrency()))
+                    .append(',').append(CurrencyCsvReader.id(deal.getToCurrency()))
+                    .append(',').append(deal.getTimestamp())
+                    .append(',').append(deal.getAmount())
+                    .append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static void appendQuoted(StringBuilder csv, String value) {
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+}
@@ -0,0 +1,43 @@
+package com.warehouse.warehouse.services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reports the bytes read from the wrapped stream to the import context.
+ */
+class CountingInputStream extends FilterInputStream {
+
+    private final ImportContext context;
+
+    CountingInputStream(InputStream in, ImportContext context) {
+        super(in);
+        this.context = context;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            context.bytesRead(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            context.bytesRead(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        context.bytesRead(skipped);
+        return skipped;
+    }
+}
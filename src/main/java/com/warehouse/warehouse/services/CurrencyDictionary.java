@@ -0,0 +1,58 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the {@code currencies} table naming every accepted currency id. The migrations seed it from
+ * {@code valid-currencies.txt}; codes accepted since, e.g. with the ISO source, are added at startup so SQL readers
+ * can always join the currency columns of {@code deals} to it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CurrencyDictionary {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CurrencyCsvReader currencyCsvReader;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        try {
+            sync();
+        } catch (DataAccessException e) {
+            // Another instance starting at the same time adds the same codes
+            log.warn("Could not update the currency dictionary: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the accepted codes missing from {@code currencies} and returns how many were added.
+     */
+    public int sync() {
+        Set<Short> known = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM currencies", Short.class));
+        List<Object[]> missing = new ArrayList<>();
+        for (String code : currencyCsvReader.codes()) {
+            short id = CurrencyCsvReader.id(code);
+            if (!known.contains(id)) {
+                missing.add(new Object[]{id, code});
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO currencies (id, code) VALUES (?, ?)", missing);
+            log.info("Added {} codes to the currency dictionary", missing.size());
+        }
+        return missing.size();
+    }
+}
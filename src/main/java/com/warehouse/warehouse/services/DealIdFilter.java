@@ -0,0 +1,336 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.config.ImportProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over the stored dealIds, so that deals known to be new skip the duplicate lookup.
+ * <p>
+ * The filter is warmed in the background at startup, from its snapshot file when there is one and by scanning the
+ * {@code deals} table in parallel id ranges otherwise. Until it is warm, and when it is disabled, every dealId
+ * might be stored. Imports add their dealIds once their chunk commits. Deals written by anything else than this
+ * instance are not seen, which is why callers must handle a unique violation on a deal the filter ruled out.
+ */
+@Slf4j
+@Component
+public class DealIdFilter implements MeterBinder {
+
+    private static final int SNAPSHOT_MAGIC = 0x44494446;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final ImportProperties.Filter properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final long numBits;
+    private final int numHashes;
+    private final AtomicLongArray bits;
+    private final AtomicLong insertions = new AtomicLong();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder positives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    private volatile boolean ready;
+    // Highest deal id the warm-up covered: rows after it may have been written by other instances
+    private volatile long coveredId;
+
+    public DealIdFilter(ImportProperties importProperties, JdbcTemplate jdbcTemplate) {
+        this.properties = importProperties.getFilter();
+        this.jdbcTemplate = jdbcTemplate;
+        long expected = Math.max(1, properties.getExpectedDeals());
+        double fpp = Math.min(0.5, Math.max(1e-9, properties.getFalsePositiveRate()));
+        long words = properties.isEnabled()
+                ? Math.max(1, (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2)) / 64))
+                : 1;
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Deal filter is too large: " + words + " words");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.numBits = words * 64;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expected * Math.log(2)));
+    }
+
+    /**
+     * False only when {@code dealId} is certainly not stored.
+     */
+    public boolean mightContain(String dealId) {
+        if (!ready) {
+            return true;
+        }
+        long hash = hash(dealId);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                negatives.increment();
+                return false;
+            }
+        }
+        positives.increment();
+        return true;
+    }
+
+    /**
+     * Records dealIds reported by {@link #mightContain} that turned out not to be stored.
+     */
+    public void falsePositives(int count) {
+        falsePositives.add(count);
+    }
+
+    public void putAll(Collection<String> dealIds) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (String dealId : dealIds) {
+            put(dealId);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getSize() {
+        return insertions.get();
+    }
+
+    public long getMemoryBytes() {
+        return (long) bits.length() * Long.BYTES;
+    }
+
+    /**
+     * False-positive rate expected for the current number of insertions.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) numHashes * insertions.get() / numBits), numHashes);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("deals.filter.size", this, DealIdFilter::getSize)
+                .description("DealIds added to the filter")
+                .register(registry);
+        Gauge.builder("deals.filter.memory", this, DealIdFilter::getMemoryBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("deals.filter.false.positive.rate", this, DealIdFilter::getExpectedFalsePositiveRate)
+                .description("Expected false-positive rate at the current size")
+                .register(registry);
+        Gauge.builder("deals.filter.ready", this, filter -> filter.isReady() ? 1 : 0)
+                .register(registry);
+        FunctionCounter.builder("deals.filter.lookups", negatives, LongAdder::sum)
+                .tag("result", "negative")
+                .register(registry);
+        FunctionCounter.builder("deals.filter.lookups", positives, LongAdder::sum)
+                .tag("result", "positive")
+                .register(registry);
+        FunctionCounter.builder("deals.filter.lookups", falsePositives, LongAdder::sum)
+                .tag("result", "false_positive")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpInBackground() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "deal-filter-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Fills the filter from the snapshot file and the rows stored after it, or from the whole table.
+     */
+    public void warmUp() {
+        long started = System.nanoTime();
+        try {
+            long fromId = loadSnapshot();
+            Long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM deals", Long.class);
+            if (maxId != null && maxId > fromId) {
+                Long minId = jdbcTemplate.queryForObject("SELECT min(id) FROM deals WHERE id > ?", Long.class, fromId);
+                scan(minId, maxId);
+            }
+            coveredId = maxId != null ? Math.max(fromId, maxId) : fromId;
+            ready = true;
+            log.info("Deal filter warmed with {} dealIds in {} ms ({} KB, expected false-positive rate {})",
+                    insertions.get(), (System.nanoTime() - started) / 1_000_000, getMemoryBytes() / 1024,
+                    String.format("%.5f", getExpectedFalsePositiveRate()));
+            if (insertions.get() > properties.getExpectedDeals()) {
+                log.warn("Deal filter holds {} dealIds but is sized for {}; raise deals.import.filter.expected-deals",
+                        insertions.get(), properties.getExpectedDeals());
+            }
+        } catch (RuntimeException e) {
+            log.error("Deal filter warm-up failed, every deal will be looked up", e);
+        }
+    }
+
+    /**
+     * Writes the filter to its snapshot file, together with the highest deal id scanned at warm-up. Rows stored
+     * since then are scanned again on the next start, as the filter only holds those this instance imported.
+     */
+    @PreDestroy
+    public void saveSnapshot() {
+        Path file = snapshotFile();
+        if (file == null || !ready) {
+            return;
+        }
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(numBits);
+                out.writeInt(numHashes);
+                out.writeLong(insertions.get());
+                out.writeLong(coveredId);
+                for (int i = 0; i < bits.length(); i++) {
+                    out.writeLong(bits.get(i));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Deal filter snapshot saved to {}", file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not save deal filter snapshot to {}", file, e);
+        }
+    }
+
+    /**
+     * Restores the filter from its snapshot file and returns the highest deal id it covers, or 0 without one.
+     */
+    private long loadSnapshot() {
+        Path file = snapshotFile();
+        if (file == null || !Files.isRegularFile(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION
+                    || in.readLong() != numBits || in.readInt() != numHashes) {
+                log.info("Deal filter snapshot {} does not match the configured size, rescanning deals", file);
+                return 0;
+            }
+            long count = in.readLong();
+            long maxId = in.readLong();
+            for (int i = 0; i < bits.length(); i++) {
+                long word = in.readLong();
+                bits.getAndAccumulate(i, word, (current, loaded) -> current | loaded);
+            }
+            insertions.addAndGet(count);
+            log.info("Deal filter restored {} dealIds from {}", count, file);
+            return maxId;
+        } catch (IOException e) {
+            log.warn("Could not read deal filter snapshot {}, rescanning deals", file, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Adds the dealIds of rows {@code minId..maxId}, one id range per query, on a pool of scanners.
+     */
+    private void scan(long minId, long maxId) {
+        int threads = properties.getWarmupThreads() > 0
+                ? properties.getWarmupThreads()
+                : Runtime.getRuntime().availableProcessors();
+        long rangeSize = Math.max(1, properties.getWarmupRangeSize());
+        ExecutorService scanners = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "deal-filter-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> ranges = new ArrayList<>();
+            for (long start = minId; start <= maxId; start += rangeSize) {
+                long from = start;
+                long to = Math.min(maxId, start + rangeSize - 1);
+                ranges.add(scanners.submit(() -> jdbcTemplate.query(
+                        "SELECT deal_id FROM deals WHERE id BETWEEN ? AND ?",
+                        resultSet -> {
+                            put(resultSet.getString(1));
+                        }, from, to)));
+            }
+            for (Future<?> range : ranges) {
+                range.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Deal filter warm-up interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Deal filter warm-up failed", e.getCause());
+        } finally {
+            scanners.shutdownNow();
+        }
+    }
+
+    private void put(String dealId) {
+        long hash = hash(dealId);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            long current = bits.get(word);
+            if ((current & mask) == 0) {
+                bits.getAndAccumulate(word, mask, (value, m) -> value | m);
+                changed = true;
+            }
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+    }
+
+    private Path snapshotFile() {
+        String file = properties.getSnapshotFile();
+        return file == null || file.isBlank() ? null : Paths.get(file);
+    }
+
+    private static long hash(String dealId) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < dealId.length(); i++) {
+            hash = (hash ^ dealId.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB97FA63C85A3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
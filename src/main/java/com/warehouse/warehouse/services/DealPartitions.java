@@ -0,0 +1,156 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.config.PartitionProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code deals} ahead of the clock, gives the rows that landed in the default
+ * partition, such as a backfill of past months, a partition of their own, and detaches the ones past the retention.
+ * Does nothing unless {@code deals} is a partitioned PostgreSQL table, as created by the schema migrations.
+ */
+@Slf4j
+@Component
+public class DealPartitions {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("deals_p(\\d{6})");
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String IS_PARTITIONED = """
+            SELECT count(*) FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid
+            WHERE c.relname = 'deals' AND pg_table_is_visible(c.oid)""";
+
+    private static final String ATTACHED_PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'deals'::regclass
+            ORDER BY c.relname""";
+
+    private static final String DEFAULT_MONTHS = """
+            SELECT DISTINCT date_trunc('month', "timestamp")::date FROM deals_default""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService scheduler;
+    private volatile Boolean partitioned;
+
+    public DealPartitions(JdbcTemplate jdbcTemplate, PartitionProperties properties,
+                          PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deal-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void schedule() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = properties.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                maintain();
+            } catch (RuntimeException e) {
+                log.error("Deal partition maintenance failed", e);
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the partitions of the current month, of the {@code monthsAhead} next ones and of the months of the
+     * rows in the default partition, moving those rows in, then detaches the partitions of months ending before the
+     * retention. Rows of months before the retention stay in the default partition rather than being detached as
+     * soon as they are imported. Returns the number of partitions created.
+     */
+    public int maintain() {
+        if (!isPartitioned()) {
+            return 0;
+        }
+        YearMonth current = YearMonth.now();
+        YearMonth oldest = properties.getRetention().isZero()
+                ? null
+                : YearMonth.from(LocalDate.now().minus(properties.getRetention()));
+        Set<LocalDate> months = new TreeSet<>();
+        for (int ahead = 0; ahead <= properties.getMonthsAhead(); ahead++) {
+            months.add(current.plusMonths(ahead).atDay(1));
+        }
+        for (LocalDate month : jdbcTemplate.queryForList(DEFAULT_MONTHS, LocalDate.class)) {
+            if (oldest == null || !YearMonth.from(month).isBefore(oldest)) {
+                months.add(month);
+            }
+        }
+        int created = 0;
+        for (LocalDate month : months) {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT create_deal_partition(?)", Boolean.class,
+                    Date.valueOf(month)))) {
+                log.info("Created deals partition for {}", YearMonth.from(month));
+                created++;
+            }
+        }
+
+        if (oldest != null) {
+            for (String partition : jdbcTemplate.queryForList(ATTACHED_PARTITIONS, String.class)) {
+                Matcher matcher = PARTITION_NAME.matcher(partition);
+                if (matcher.matches() && YearMonth.parse(matcher.group(1), PARTITION_MONTH).isBefore(oldest)) {
+                    detach(partition);
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Detaches {@code partition} and releases its dealIds, so they can be imported again; the partition is then
+     * dropped or kept as a standalone table.
+     */
+    void detach(String partition) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE deals DETACH PARTITION " + partition);
+            int released = jdbcTemplate.update(
+                    "DELETE FROM deal_ids WHERE deal_id IN (SELECT deal_id FROM " + partition + ")");
+            if (properties.isDropDetached()) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+            log.info("Detached deals partition {} ({} dealIds released{})", partition, released,
+                    properties.isDropDetached() ? ", dropped" : "");
+        });
+    }
+
+    private boolean isPartitioned() {
+        if (partitioned == null) {
+            boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+            partitioned = postgres && jdbcTemplate.queryForObject(IS_PARTITIONED, Integer.class) > 0;
+        }
+        return partitioned;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,223 @@
+package com.warehouse.warehouse.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.warehouse.warehouse.Dto.DealDto;
+import com.warehouse.warehouse.Dto.DealPageDto;
+import com.warehouse.warehouse.Dto.DealQueryDto;
+import com.warehouse.warehouse.config.QueryProperties;
+import com.warehouse.warehouse.utils.Amounts;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of the deals table. Results are ordered by timestamp, then id, and paged with a keyset cursor on that
+ * pair, so a page costs the same wherever it is in the result. Rows are read with plain JDBC straight into the
+ * response, without loading entities; currency ids are turned back into codes in memory.
+ */
+@Service
+public class DealQueryService {
+
+    private static final String SELECT = """
+            SELECT id, deal_id, from_currency, to_currency, "timestamp", amount
+            FROM deals
+            """;
+    private static final String ORDER = " ORDER BY \"timestamp\", id";
+    private static final String SCALE_CASES = scaleCases();
+    private static final JsonFactory JSON = JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryProperties properties;
+    private final TransactionTemplate readOnly;
+
+    public DealQueryService(JdbcTemplate jdbcTemplate, QueryProperties properties,
+                            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /**
+     * Returns the deals matching {@code query} after {@code cursor}, or from the first one when it is null.
+     */
+    public DealPageDto page(DealQueryDto query, String cursor, Integer size) {
+        int limit = size != null ? size : properties.getDefaultPageSize();
+        if (limit < 1 || limit > properties.getMaxPageSize()) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + properties.getMaxPageSize());
+        }
+
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT + where(query, cursor, args) + ORDER + " LIMIT ?";
+        args.add(limit);
+        List<DealDto> deals = jdbcTemplate.query(sql, (rs, rowNum) -> toDto(rs), args.toArray());
+
+        DealDto last = deals.size() == limit ? deals.get(limit - 1) : null;
+        return DealPageDto.builder().
+                deals(deals).
+                next(last != null ? cursor(last.getTimestamp(), last.getId()) : null).
+                build();
+    }
+
+    /**
+     * Writes every deal matching {@code query} to {@code out} as NDJSON, one deal per line. The rows are read through
+     * a server-side cursor, {@code fetchSize} rows at a time, so memory use does not depend on the result size.
+     */
+    public void stream(DealQueryDto query, OutputStream out) {
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT + where(query, null, args) + ORDER;
+
+        readOnly.executeWithoutResult(status -> {
+            try (JsonGenerator json = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+                json.setRootValueSeparator(null);
+                char[] amount = new char[32];
+                jdbcTemplate.query(con -> {
+                    PreparedStatement statement = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(properties.getFetchSize());
+                    for (int i = 0; i < args.size(); i++) {
+                        statement.setObject(i + 1, args.get(i));
+                    }
+                    return statement;
+                }, (RowCallbackHandler) rs -> write(rs, json, amount));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to stream deals", e);
+            }
+        });
+    }
+
+    private static String where(DealQueryDto query, String cursor, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (query.getFromCurrency() != null) {
+            conditions.add("from_currency = ?");
+            args.add(CurrencyCsvReader.id(query.getFromCurrency()));
+        }
+        if (query.getToCurrency() != null) {
+            conditions.add("to_currency = ?");
+            args.add(CurrencyCsvReader.id(query.getToCurrency()));
+        }
+        if (query.getFrom() != null) {
+            conditions.add("\"timestamp\" >= ?");
+            args.add(Timestamp.valueOf(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            conditions.add("\"timestamp\" <= ?");
+            args.add(Timestamp.valueOf(query.getTo()));
+        }
+        if (query.getMinAmount() != null) {
+            conditions.add("amount >= " + amountBound(query.getFromCurrency(), query.getMinAmount(),
+                    RoundingMode.CEILING, args));
+        }
+        if (query.getMaxAmount() != null) {
+            conditions.add("amount <= " + amountBound(query.getFromCurrency(), query.getMaxAmount(),
+                    RoundingMode.FLOOR, args));
+        }
+        if (cursor != null) {
+            Object[] after = parseCursor(cursor);
+            // A row-value comparison seeks into the (timestamp, id) index, where an OR of both columns cannot
+            conditions.add("(\"timestamp\", id) > (?, ?)");
+            args.add(after[0]);
+            args.add(after[1]);
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Stored amounts are minor units of each deal's fromCurrency, so a decimal bound is converted at the scale of the
+     * queried currency, or at the scale of each row's currency when the query does not name one.
+     */
+    private static String amountBound(String fromCurrency, BigDecimal amount, RoundingMode rounding,
+                                      List<Object> args) {
+        if (fromCurrency != null) {
+            args.add(Amounts.toBound(amount, Amounts.scale(fromCurrency), rounding));
+            return "?";
+        }
+        Amounts.otherScales().keySet().forEach(scale -> args.add(Amounts.toBound(amount, scale, rounding)));
+        args.add(Amounts.toBound(amount, Amounts.DEFAULT_SCALE, rounding));
+        return SCALE_CASES;
+    }
+
+    private static String scaleCases() {
+        StringBuilder cases = new StringBuilder("CASE");
+        Amounts.otherScales().values().forEach(codes -> cases.append(" WHEN from_currency IN (").
+                append(codes.stream().map(code -> String.valueOf(CurrencyCsvReader.id(code))).
+                        collect(Collectors.joining(", "))).
+                append(") THEN ?"));
+        return cases.append(" ELSE ? END").toString();
+    }
+
+    private static DealDto toDto(ResultSet rs) throws SQLException {
+        String fromCurrency = CurrencyCsvReader.code(rs.getShort(3));
+        return DealDto.builder().
+                id(rs.getLong(1)).
+                dealId(rs.getString(2)).
+                fromCurrency(fromCurrency).
+                toCurrency(CurrencyCsvReader.code(rs.getShort(4))).
+                timestamp(rs.getTimestamp(5).toLocalDateTime()).
+                amount(Amounts.toDecimal(rs.getLong(6), fromCurrency)).
+                build();
+    }
+
+    private static void write(ResultSet rs, JsonGenerator json, char[] amount) throws SQLException {
+        try {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(1));
+            json.writeStringField("dealId", rs.getString(2));
+            String fromCurrency = CurrencyCsvReader.code(rs.getShort(3));
+            json.writeStringField("fromCurrency", fromCurrency);
+            json.writeStringField("toCurrency", CurrencyCsvReader.code(rs.getShort(4)));
+            json.writeStringField("timestamp",
+                    rs.getTimestamp(5).toLocalDateTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            json.writeFieldName("amount");
+            int start = Amounts.format(rs.getLong(6), Amounts.scale(fromCurrency), amount);
+            json.writeNumber(amount, start, amount.length - start);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stream deals", e);
+        }
+    }
+
+    /**
+     * Opaque cursor pointing right after the deal with {@code timestamp} and {@code id}.
+     */
+    static String cursor(LocalDateTime timestamp, long id) {
+        String value = timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] parseCursor(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            LocalDateTime timestamp = LocalDateTime.parse(value.substring(0, separator));
+            return new Object[]{Timestamp.valueOf(timestamp), Long.parseLong(value.substring(separator + 1))};
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.Dto.DealRollupDto;
+import com.warehouse.warehouse.Dto.RollupRebuildDto;
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.utils.Amounts;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains {@code deal_rollups}: per currency pair and hour, the number of deals and the sum, minimum and maximum
+ * of their amounts, in minor units of the pair's {@code fromCurrency}. Imports add the deals of each chunk in the
+ * chunk transaction, so the rollups always match the committed deals and dashboards can read them instead of
+ * scanning {@code deals}. Currencies are stored as their ids, in the same order as their codes.
+ */
+@Slf4j
+@Component
+public class DealRollups {
+
+    private static final String UPSERT_POSTGRES = """
+            INSERT INTO deal_rollups (from_currency, to_currency, bucket, deal_count, amount_sum, amount_min, amount_max)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (bucket, from_currency, to_currency) DO UPDATE SET
+                deal_count = deal_rollups.deal_count + EXCLUDED.deal_count,
+                amount_sum = deal_rollups.amount_sum + EXCLUDED.amount_sum,
+                amount_min = LEAST(deal_rollups.amount_min, EXCLUDED.amount_min),
+                amount_max = GREATEST(deal_rollups.amount_max, EXCLUDED.amount_max)""";
+
+    private static final String UPSERT_MERGE = """
+            MERGE INTO deal_rollups r
+            USING (VALUES (CAST(? AS SMALLINT), CAST(? AS SMALLINT), CAST(? AS TIMESTAMP(6)), CAST(? AS BIGINT),
+                           CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT)))
+                AS v (from_currency, to_currency, bucket, deal_count, amount_sum, amount_min, amount_max)
+            ON r.from_currency = v.from_currency AND r.to_currency = v.to_currency AND r.bucket = v.bucket
+            WHEN MATCHED THEN UPDATE SET
+                deal_count = r.deal_count + v.deal_count,
+                amount_sum = r.amount_sum + v.amount_sum,
+                amount_min = LEAST(r.amount_min, v.amount_min),
+                amount_max = GREATEST(r.amount_max, v.amount_max)
+            WHEN NOT MATCHED THEN INSERT (from_currency, to_currency, bucket, deal_count, amount_sum, amount_min, amount_max)
+                VALUES (v.from_currency, v.to_currency, v.bucket, v.deal_count, v.amount_sum, v.amount_min, v.amount_max)""";
+
+    private static final String REBUILD = """
+            INSERT INTO deal_rollups (from_currency, to_currency, bucket, deal_count, amount_sum, amount_min, amount_max)
+            SELECT from_currency, to_currency, DATE_TRUNC('hour', "timestamp"), COUNT(*), SUM(amount), MIN(amount),
+                   MAX(amount)
+            FROM deals
+            WHERE "timestamp" >= ? AND "timestamp" < ?
+            GROUP BY from_currency, to_currency, DATE_TRUNC('hour', "timestamp")""";
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::bucket)
+            .thenComparing(Key::fromCurrency)
+            .thenComparing(Key::toCurrency);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private volatile Boolean postgres;
+
+    public DealRollups(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Adds newly stored deals to their rollups. Must run in the transaction storing them.
+     */
+    public void add(List<Deal> deals) {
+        if (deals.isEmpty()) {
+            return;
+        }
+        // Rows are upserted in key order, so concurrent imports lock shared rollups in the same order
+        Map<Key, Rollup> rollups = new TreeMap<>(KEY_ORDER);
+        for (Deal deal : deals) {
+            Key key = new Key(deal.getTimestamp().truncatedTo(ChronoUnit.HOURS), deal.getFromCurrency(),
+                    deal.getToCurrency());
+            rollups.computeIfAbsent(key, k -> new Rollup()).add(deal.getAmount());
+        }
+
+        List<Object[]> args = new ArrayList<>(rollups.size());
+        rollups.forEach((key, rollup) -> args.add(new Object[]{CurrencyCsvReader.id(key.fromCurrency()),
+                CurrencyCsvReader.id(key.toCurrency()), Timestamp.valueOf(key.bucket()), rollup.count, rollup.sum,
+                rollup.min, rollup.max}));
+        jdbcTemplate.batchUpdate(isPostgres() ? UPSERT_POSTGRES : UPSERT_MERGE, args);
+    }
+
+    /**
+     * The hourly rollups of the buckets starting within [{@code from}, {@code to}), narrowed to the given currencies
+     * when they are not null.
+     */
+    public List<DealRollupDto> find(String fromCurrency, String toCurrency, LocalDateTime from, LocalDateTime to) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT from_currency, to_currency, bucket, deal_count, amount_sum, amount_min, amount_max
+                FROM deal_rollups
+                WHERE bucket >= ? AND bucket < ?""");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(from.truncatedTo(ChronoUnit.HOURS)));
+        args.add(Timestamp.valueOf(to));
+        if (fromCurrency != null) {
+            sql.append(" AND from_currency = ?");
+            args.add(CurrencyCsvReader.id(fromCurrency));
+        }
+        if (toCurrency != null) {
+            sql.append(" AND to_currency = ?");
+            args.add(CurrencyCsvReader.id(toCurrency));
+        }
+        sql.append(" ORDER BY bucket, from_currency, to_currency");
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            String pairFrom = CurrencyCsvReader.code(rs.getShort(1));
+            return DealRollupDto.builder().
+                    fromCurrency(pairFrom).
+                    toCurrency(CurrencyCsvReader.code(rs.getShort(2))).
+                    bucket(rs.getTimestamp(3).toLocalDateTime()).
+                    count(rs.getLong(4)).
+                    sum(Amounts.toDecimal(rs.getLong(5), pairFrom)).
+                    min(Amounts.toDecimal(rs.getLong(6), pairFrom)).
+                    max(Amounts.toDecimal(rs.getLong(7), pairFrom)).
+                    build();
+        }, args.toArray());
+    }
+
+    /**
+     * Recomputes the rollups of the hours from {@code from} up to {@code to} from the deals table, in one
+     * transaction; null bounds cover every stored deal. On PostgreSQL the rollups table is locked first, so chunks
+     * committing meanwhile are counted exactly once.
+     */
+    public RollupRebuildDto rebuild(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from != null ? from.truncatedTo(ChronoUnit.HOURS) : LocalDateTime.of(1, 1, 1, 0, 0);
+        LocalDateTime end = to != null ? ceilHour(to) : LocalDateTime.of(9999, 1, 1, 0, 0);
+        long started = System.nanoTime();
+
+        Integer buckets = transactionTemplate.execute(status -> {
+            if (isPostgres()) {
+                jdbcTemplate.execute("LOCK TABLE deal_rollups IN EXCLUSIVE MODE");
+            }
+            jdbcTemplate.update("DELETE FROM deal_rollups WHERE bucket >= ? AND bucket < ?",
+                    Timestamp.valueOf(start), Timestamp.valueOf(end));
+            return jdbcTemplate.update(REBUILD, Timestamp.valueOf(start), Timestamp.valueOf(end));
+        });
+
+        long tookMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Rebuilt {} deal rollups from {} to {} in {} ms", buckets, start, end, tookMillis);
+        return RollupRebuildDto.builder().
+                from(from != null ? start : null).
+                to(to != null ? end : null).
+                buckets(buckets != null ? buckets : 0).
+                tookMillis(tookMillis).
+                build();
+    }
+
+    private static LocalDateTime ceilHour(LocalDateTime time) {
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        return hour.equals(time) ? hour : hour.plusHours(1);
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    private record Key(LocalDateTime bucket, String fromCurrency, String toCurrency) {
+    }
+
+    private static final class Rollup {
+
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        void add(long amount) {
+            count++;
+            sum += amount;
+            min = Math.min(min, amount);
+            max = Math.max(max, amount);
+        }
+    }
+}
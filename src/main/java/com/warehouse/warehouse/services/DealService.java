@@ -1,25 +1,43 @@
 package com.warehouse.warehouse.services;
 
 
-import com.opencsv.bean.CsvToBean;
-import com.opencsv.bean.CsvToBeanBuilder;
-import com.warehouse.warehouse.Dto.DealsDto;
+import com.warehouse.warehouse.Dto.ChunkResultDto;
+import com.warehouse.warehouse.Dto.ImportErrorCode;
+import com.warehouse.warehouse.Dto.ImportErrorDto;
 import com.warehouse.warehouse.Dto.ResultDto;
 import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportCancelledException;
 import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.utils.CsvDecoder;
+import com.warehouse.warehouse.utils.DealCsvDecoder;
+import com.warehouse.warehouse.utils.DealIdSet;
+import com.warehouse.warehouse.utils.DealReader;
+import com.warehouse.warehouse.utils.OpenCsvDealReader;
 import com.warehouse.warehouse.validation.DealValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,82 +48,679 @@ public class DealService {
 
     private final DealRepository dealRepository;
     private final DealValidator validator;
+    private final ImportProperties importProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final CopyDealWriter copyDealWriter;
+    private final ImportPipeline importPipeline;
+    private final ImportReports importReports;
+    private final DealIdFilter dealIdFilter;
+    private final ImportMetrics importMetrics;
+    private final ImportCheckpoints importCheckpoints;
+    private final DealRollups dealRollups;
+    private final ImportAdmission importAdmission;
 
     public ResultDto importCsv(MultipartFile file) throws IOException {
+        return importCsv(file, null);
+    }
+
+    /**
+     * Imports {@code file} with the given ingest engine, or the configured default when {@code engine} is null.
+     */
+    public ResultDto importCsv(MultipartFile file, IngestEngine engine) throws IOException {
+        checkCsvFile(file);
+
+        try (ImportAdmission.Permit permit = importAdmission.admit(file.getSize());
+             InputStream in = file.getInputStream()) {
+            ImportContext context = newContext(engine);
+            context.admitted(permit);
+            return importCsv(in, context);
+        }
+    }
+
+    /**
+     * Imports the CSV rows of {@code in}, tracking progress in {@code context}. The import stops at the next
+     * chunk boundary once the context is cancelled.
+     */
+    public ResultDto importCsv(InputStream in, ImportContext context) {
+        importMetrics.started(context);
+        try {
+            importRows(new CountingInputStream(in, context), context);
+        } finally {
+            context.close();
+            importMetrics.finished(context);
+        }
+
+        log.info("CSV import completed: {} saved, {} duplicates, {} invalid, {} failed in {} chunks.",
+                context.getSaved(), context.getDuplicates(), context.getInvalid(), context.getFailed(),
+                context.getChunks());
+
+        return context.toResult();
+    }
+
+    /**
+     * Checks {@code file} the way an import would, with the validator and the in-file duplicate check, without
+     * writing anything. Only every {@code sample}-th row is checked, and the run stops once {@code maxErrors} rows or
+     * {@code maxErrorPercent} percent of the checked rows are rejected; a null limit defaults to
+     * {@code deals.import.validation}. Rows that pass count as saved, though an import may still find some of them
+     * already stored.
+     */
+    public ResultDto validateCsv(MultipartFile file, Integer maxErrors, Double maxErrorPercent, int sample)
+            throws IOException {
+        checkCsvFile(file);
+        try (InputStream in = file.getInputStream()) {
+            return validateCsv(in, file.getSize(), maxErrors, maxErrorPercent, sample);
+        }
+    }
+
+    /**
+     * Checks a CSV request body as it arrives, see {@link #validateCsv(MultipartFile, Integer, Double, int)}, so a
+     * run that stops early does not wait for the rest of the upload. {@code contentEncoding} may be gzip.
+     */
+    public ResultDto validateCsvStream(InputStream body, String contentType, String contentEncoding, String fileName,
+                                      Integer maxErrors, Double maxErrorPercent, int sample) throws IOException {
+        checkCsvType(contentType, fileName);
+        try (PushbackInputStream in = new PushbackInputStream(decode(body, contentEncoding), 1)) {
+            checkNotEmpty(in);
+            return validateCsv(in, -1, maxErrors, maxErrorPercent, sample);
+        }
+    }
+
+    private ResultDto validateCsv(InputStream in, long size, Integer maxErrors, Double maxErrorPercent, int sample) {
+        if (sample < 1) {
+            throw new IllegalArgumentException("sample must be at least 1");
+        }
+        ImportProperties.Validation validation = importProperties.getValidation();
+        int errorLimit = maxErrors != null ? maxErrors : validation.getMaxErrors();
+        double percentLimit = maxErrorPercent != null ? maxErrorPercent : validation.getMaxErrorPercent();
+
+        try (ImportAdmission.Permit permit = importAdmission.admit(size)) {
+            ImportContext context = newContext(null);
+            context.admitted(permit);
+            String stopReason;
+            try {
+                stopReason = validateRows(new CountingInputStream(in, context), context, sample, errorLimit,
+                        percentLimit);
+            } finally {
+                context.close();
+            }
+
+            log.info("CSV validation completed: {} rows checked, {} valid, {} duplicates, {} invalid{}",
+                    context.getRows(), context.getSaved(), context.getDuplicates(), context.getInvalid(),
+                    stopReason != null ? " (" + stopReason + ")" : "");
+
+            ResultDto result = context.toResult();
+            result.setCheckedRows(context.getRows());
+            result.setStopReason(stopReason);
+            return result;
+        }
+    }
 
+    public ImportContext newContext(IngestEngine engine) {
+        return new ImportContext(engine != null ? engine : importProperties.getEngine(), importReports.create(),
+                importProperties.getReports().getInlineErrors(), newAppearedIds());
+    }
 
-        int successCount = 0, duplicateCount = 0, invalidCount = 0;
-        List<String> errorMessages = new ArrayList<>();
+    /**
+     * A context whose in-file duplicate check spans every import sharing {@code appearedIds}.
+     */
+    public ImportContext newContext(IngestEngine engine, DealIdSet appearedIds) {
+        return new ImportContext(engine != null ? engine : importProperties.getEngine(), importReports.create(),
+                importProperties.getReports().getInlineErrors(), appearedIds, true);
+    }
+
+    /**
+     * An empty in-file duplicate check, spilling as configured in {@code deals.import.in-file-dedup}.
+     */
+    public DealIdSet newAppearedIds() {
+        return new DealIdSet(importProperties.getInFileDedup());
+    }
 
+    /**
+     * Imports {@code file} as the resumable import {@code key}, or under the SHA-256 of its content when
+     * {@code key} is null. A file whose import was interrupted continues after its last committed chunk.
+     */
+    public ResultDto importResumable(MultipartFile file, String key, IngestEngine engine) throws IOException {
+        checkCsvFile(file);
+
+        if (key == null) {
+            try (InputStream in = file.getInputStream()) {
+                key = ImportCheckpoints.contentKey(in);
+            }
+        }
+        try (InputStream in = file.getInputStream()) {
+            return importResumable(in, key, 0, engine, file.getSize());
+        }
+    }
+
+    /**
+     * Runs the import {@code key} over {@code in}, which starts at byte {@code offset} of the file: 0 when the whole
+     * file is sent, or any offset up to the checkpoint when only the rest of the file is. Rows before the checkpoint
+     * are skipped without being parsed, and the result covers the whole file as if it had been imported in one run.
+     * Running a completed import again returns its result without reading {@code in}.
+     */
+    public ResultDto importResumable(InputStream in, String key, long offset, IngestEngine engine) throws IOException {
+        return importResumable(in, key, offset, engine, -1);
+    }
+
+    private ResultDto importResumable(InputStream in, String key, long offset, IngestEngine engine, long size)
+            throws IOException {
+        if (importProperties.getDecoder() != CsvDecoder.FAST) {
+            throw new IllegalArgumentException("Resumable imports need the fast CSV decoder");
+        }
+
+        try (ImportAdmission.Permit permit = importAdmission.admit(size)) {
+            ResumableImport resumable = importCheckpoints.open(key, engine);
+            try {
+                ImportContext context = importCheckpoints.context(resumable);
+                if (resumable.isCompleted()) {
+                    log.info("Import {} already completed, returning its result", key);
+                    return context.toResult();
+                }
+                context.admitted(permit);
+                ResultDto result = importCsv(resumable.seek(in, offset), context);
+                importCheckpoints.complete(context);
+                return result;
+            } finally {
+                importCheckpoints.release(resumable);
+            }
+        }
+    }
+
+    public void checkCsvFile(MultipartFile file) {
         if (file.isEmpty()) {
             log.warn("File is empty");
             throw new IllegalArgumentException("File is empty");
         }
 
+        checkCsvType(file.getContentType(), file.getOriginalFilename());
+    }
 
-        String contentType = file.getContentType();
-        String fileName = file.getOriginalFilename();
+    /**
+     * Imports a CSV request body as it arrives, applying the same checks as the multipart upload.
+     * {@code contentEncoding} may be gzip; {@code fileName} is optional and only used for the extension check.
+     */
+    public ResultDto importCsvStream(InputStream body, String contentType, String contentEncoding, String fileName,
+                                     IngestEngine engine) throws IOException {
+        return importCsvStream(body, contentType, contentEncoding, fileName, engine, null, 0);
+    }
 
-        if (contentType == null || (!contentType.equals("text/csv") && !contentType.equals("application/vnd.ms-excel"))
+    /**
+     * Imports a CSV request body as the resumable import {@code key} when it is not null; the body then starts at
+     * byte {@code offset} of the decoded file, see {@link #importResumable(InputStream, String, long, IngestEngine)}.
+     */
+    public ResultDto importCsvStream(InputStream body, String contentType, String contentEncoding, String fileName,
+                                     IngestEngine engine, String key, long offset) throws IOException {
+        checkCsvType(contentType, fileName);
+        if (offset != 0 && (key == null || !isIdentity(contentEncoding))) {
+            throw new IllegalArgumentException("An offset needs an import key and an uncompressed body");
+        }
+
+        try (PushbackInputStream in = new PushbackInputStream(decode(body, contentEncoding), 1)) {
+            if (offset == 0) {
+                checkNotEmpty(in);
+            }
+
+            if (key != null) {
+                return importResumable(in, key, offset, engine);
+            }
+            // The decoded size of the body is not known up front
+            try (ImportAdmission.Permit permit = importAdmission.admit(-1)) {
+                ImportContext context = newContext(engine);
+                context.admitted(permit);
+                return importCsv(in, context);
+            }
+        }
+    }
+
+    private static void checkNotEmpty(PushbackInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            log.warn("File is empty");
+            throw new IllegalArgumentException("File is empty");
+        }
+        in.unread(first);
+    }
+
+    private void checkCsvType(String contentType, String fileName) {
+        String mediaType = null;
+        if (contentType != null) {
+            MediaType parsed = MediaType.parseMediaType(contentType);
+            mediaType = parsed.getType() + "/" + parsed.getSubtype();
+        }
+
+        if (mediaType == null || (!mediaType.equals("text/csv") && !mediaType.equals("application/vnd.ms-excel"))
                 || (fileName != null && !fileName.toLowerCase().endsWith(".csv"))) {
             log.warn("Only CSV files are allowed");
             throw new IllegalArgumentException("Invalid file type. Only CSV files are allowed");
         }
+    }
+
+    private InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        if (isIdentity(contentEncoding)) {
+            return body;
+        }
+        if (contentEncoding.equalsIgnoreCase("gzip") || contentEncoding.equalsIgnoreCase("x-gzip")) {
+            return new GZIPInputStream(body, 64 * 1024);
+        }
+        throw new IllegalArgumentException("Unsupported Content-Encoding " + contentEncoding);
+    }
 
-        try (Reader reader = new InputStreamReader(file.getInputStream())) {
-            CsvToBean<DealsDto> csvToBean = new CsvToBeanBuilder<DealsDto>(reader)
-                    .withType(DealsDto.class)
-                    .withIgnoreLeadingWhiteSpace(true)
-                    .build();
+    private static boolean isIdentity(String contentEncoding) {
+        return contentEncoding == null || contentEncoding.isBlank() || contentEncoding.equalsIgnoreCase("identity");
+    }
 
+    /**
+     * Streams the rows of {@code in} through validation and persistence, never holding more than
+     * a bounded number of chunks in memory. With the pipeline enabled, chunks are validated on the worker
+     * pool and persisted in file order, so the outcome is the same as the sequential path.
+     */
+    private void importRows(InputStream in, ImportContext context) {
+        DealReader rows = openRows(in);
+        if (context.isResumable()) {
+            if (!(rows instanceof DealCsvDecoder decoder)) {
+                throw new IllegalArgumentException("Resumable imports need a plain CSV header naming the deal columns");
+            }
+            context.resumable().header(decoder.header());
+        }
+        if (context.getEngine() == IngestEngine.COPY) {
+            copyDealWriter.prepare();
+        }
+        int chunkSize = Math.max(1, importProperties.getChunkSize());
 
-            List<DealsDto> dtoList;
+        if (importProperties.getPipeline().isEnabled()) {
+            importPipeline.run(() -> nextChunk(rows, chunkSize), this::validateChunk,
+                    chunk -> persistChunk(chunk, context));
+            return;
+        }
 
-            try {
-                dtoList = csvToBean.parse();
-            } catch (RuntimeException e) {
-                log.error("Error parsing CSV file", e);
-                throw new IllegalArgumentException("Invalid CSV format" + e.getMessage(), e);
+        ReadChunk chunk;
+        while ((chunk = nextChunk(rows, chunkSize)) != null) {
+            persistChunk(validateChunk(chunk), context);
+        }
+    }
+
+    /**
+     * Runs the rows of {@code in} through validation and the in-file duplicate check only, with the fast decoder
+     * whatever is configured. Returns why the run stopped early, or null when it reached the end of the file.
+     */
+    private String validateRows(InputStream in, ImportContext context, int sample, int maxErrors,
+                                double maxErrorPercent) {
+        DealReader rows = openRows(in, CsvDecoder.FAST);
+        // Every row is still decoded, to find where the next one starts, but only the sampled ones are checked
+        DealReader sampled = sample == 1 ? rows : () -> {
+            Deal deal = rows.next();
+            for (int skipped = 1; deal != null && skipped < sample && rows.next() != null; skipped++) {
+                // skips the rows between two samples
+            }
+            return deal;
+        };
+        int chunkSize = Math.max(1, importProperties.getChunkSize());
+        int minRows = importProperties.getValidation().getMinRowsForPercent();
+        AtomicReference<String> stopReason = new AtomicReference<>();
+        Supplier<ReadChunk> source = () -> stopReason.get() == null ? nextChunk(sampled, chunkSize) : null;
+        Consumer<ValidatedChunk> sink = chunk -> {
+            if (stopReason.get() == null) {
+                stopReason.set(checkChunk(chunk, context, sample, maxErrors, maxErrorPercent, minRows));
             }
+        };
 
-            Set<String> appearedID = new HashSet<>();
-            for (DealsDto dto : dtoList) {
-                String reason = validator.validate(Deal.toEntity(dto));
+        if (importProperties.getPipeline().isEnabled()) {
+            importPipeline.run(source, this::validateChunk, sink);
+        } else {
+            ReadChunk chunk;
+            while ((chunk = source.get()) != null) {
+                sink.accept(validateChunk(chunk));
+            }
+        }
+        return stopReason.get();
+    }
 
-                if (!appearedID.add(dto.getDealId())) {
-                    errorMessages.add("Duplicate deal in file [" + dto.getDealId() + "] ignored.");
-                    duplicateCount++;
-                    continue;
+    /**
+     * Records the outcome of a validated chunk of sampled rows, row by row, and returns why the run stops once an
+     * error limit is reached, or null.
+     */
+    private String checkChunk(ValidatedChunk validated, ImportContext context, int sample, int maxErrors,
+                              double maxErrorPercent, int minRows) {
+        importAdmission.check(context, validated.deals().size());
+        List<Deal> chunk = validated.deals();
+        // Checked rows are numbered 1, 2, ... here; the file row of the n-th is (n - 1) * sample + 1
+        long firstChecked = context.nextChunk(chunk.size());
+        try {
+            for (int i = 0; i < chunk.size(); i++) {
+                Deal deal = chunk.get(i);
+                long row = (firstChecked - 1 + i) * sample + 1;
+                if (!context.markAppeared(deal.getDealId())) {
+                    context.duplicate(error(row, deal, ImportErrorCode.DUPLICATE_IN_FILE, null));
+                } else if (validated.reasons()[i] != null) {
+                    context.invalid(error(row, deal, ImportErrorCode.INVALID_DEAL, validated.reasons()[i]));
+                } else {
+                    context.saved(1);
                 }
 
-                if (reason != null) {
-                    errorMessages.add("Invalid deal [" + dto.getDealId() + "]: " + reason);
-                    invalidCount++;
-                    continue;
+                long checked = firstChecked + i;
+                long rejected = (long) context.getDuplicates() + context.getInvalid();
+                if (maxErrors > 0 && rejected >= maxErrors) {
+                    context.stoppedAt(checked);
+                    return "Stopped after " + rejected + " rejected rows";
+                }
+                if (maxErrorPercent > 0 && checked >= minRows && rejected * 100.0 / checked > maxErrorPercent) {
+                    context.stoppedAt(checked);
+                    return String.format(Locale.ROOT, "Stopped at %.1f%% rejected rows after %d rows",
+                            rejected * 100.0 / checked, checked);
                 }
+            }
+            return null;
+        } finally {
+            context.flushReport();
+        }
+    }
+
+    private ReadChunk nextChunk(DealReader rows, int chunkSize) {
+        long started = System.nanoTime();
+        List<Deal> chunk = new ArrayList<>(chunkSize);
+        Deal deal;
+        while (chunk.size() < chunkSize && (deal = nextRow(rows)) != null) {
+            chunk.add(deal);
+        }
+        if (chunk.isEmpty()) {
+            return null;
+        }
+        importMetrics.record(ImportPhase.PARSE, System.nanoTime() - started);
+        return new ReadChunk(chunk, rows.position());
+    }
+
+    /**
+     * Validates a chunk. Holds no import state, so chunks can be validated concurrently.
+     */
+    private ValidatedChunk validateChunk(ReadChunk chunk) {
+        long started = System.nanoTime();
+        List<Deal> deals = chunk.deals();
+        String[] reasons = new String[deals.size()];
+        for (int i = 0; i < deals.size(); i++) {
+            reasons[i] = validator.validate(deals.get(i));
+        }
+        importMetrics.record(ImportPhase.VALIDATE, System.nanoTime() - started);
+        return new ValidatedChunk(deals, reasons, chunk.position());
+    }
+
+    /**
+     * Applies the in-file duplicate check to a validated chunk and persists its accepted deals in one transaction.
+     * A failing chunk is rolled back on its own and reported in the result; chunks committed before it stay committed.
+     * A resumable import records its checkpoint once the chunk is done.
+     */
+    private void persistChunk(ValidatedChunk validated, ImportContext context) {
+        if (context.isCancelled()) {
+            throw new ImportCancelledException("Import cancelled after " + context.getRows() + " rows");
+        }
+        importAdmission.check(context, validated.deals().size());
 
-                if (dealRepository.existsByDealId(dto.getDealId())) {
-                    errorMessages.add("Duplicate deal [" + dto.getDealId() + "] ignored.");
-                    duplicateCount++;
-                    continue;
+        long started = System.nanoTime();
+        List<Deal> chunk = validated.deals();
+        long firstRow = context.nextChunk(chunk.size());
+        List<Deal> candidates = new ArrayList<>(chunk.size());
+        long[] candidateRows = new long[chunk.size()];
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Deal deal = chunk.get(i);
+            String reason = validated.reasons()[i];
+
+            if (!context.markAppeared(deal.getDealId())) {
+                context.duplicate(error(firstRow + i, deal, ImportErrorCode.DUPLICATE_IN_FILE, null));
+                importMetrics.rejected(ImportErrorCode.DUPLICATE_IN_FILE);
+                continue;
+            }
+
+            if (reason != null) {
+                context.invalid(error(firstRow + i, deal, ImportErrorCode.INVALID_DEAL, reason));
+                importMetrics.invalid(reason);
+                continue;
+            }
+
+            candidateRows[candidates.size()] = firstRow + i;
+            candidates.add(deal);
+        }
+
+        try {
+            if (!candidates.isEmpty()) {
+                writeChunk(candidates, candidateRows, firstRow, chunk.size(), validated.position(), context);
+            } else {
+                checkpoint(validated.position(), context);
+            }
+        } finally {
+            context.flushReport();
+            importMetrics.chunk(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Writes the candidates of a chunk and records the outcome. The outcome, and the checkpoint of a resumable
+     * import, are recorded before the transaction commits and forgotten again if it does not.
+     */
+    private void writeChunk(List<Deal> candidates, long[] candidateRows, long firstRow, int chunkRows, long position,
+                            ImportContext context) {
+        ImportContext.Mark mark = context.mark();
+        Set<String> stored;
+        try {
+            stored = write(candidates, context, written -> {
+                context.rollbackTo(mark);
+                accept(candidates, candidateRows, written, context);
+                if (context.isResumable()) {
+                    importCheckpoints.save(context, position);
                 }
+            });
+        } catch (RuntimeException e) {
+            context.rollbackTo(mark);
+            log.error("Chunk {} (rows {}-{}) failed and was rolled back", context.getChunks(), firstRow,
+                    firstRow + chunkRows - 1, e);
+            List<ImportErrorDto> rowErrors = new ArrayList<>(candidates.size());
+            for (int i = 0; i < candidates.size(); i++) {
+                rowErrors.add(error(candidateRows[i], candidates.get(i), ImportErrorCode.CHUNK_FAILED, e.getMessage()));
+            }
+            context.chunkFailed(ChunkResultDto.builder().
+                    chunk(context.getChunks()).
+                    firstRow(firstRow).
+                    lastRow(firstRow + chunkRows - 1).
+                    rows(candidates.size()).
+                    error(e.getMessage()).
+                    build(), rowErrors);
+            importMetrics.rejected(ImportErrorCode.CHUNK_FAILED, candidates.size());
+            checkpoint(position, context);
+            return;
+        }
+
+        importMetrics.rejected(ImportErrorCode.ALREADY_STORED, stored.size());
+        importMetrics.saved(candidates.size() - stored.size());
+        dealIdFilter.putAll(candidates.stream().map(Deal::getDealId).toList());
+    }
+
+    /**
+     * Records the outcome of a written chunk and adds its new deals to the rollups, inside the chunk transaction.
+     */
+    private void accept(List<Deal> candidates, long[] candidateRows, Set<String> stored, ImportContext context) {
+        List<Deal> saved = new ArrayList<>(candidates.size() - stored.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            Deal deal = candidates.get(i);
+            if (stored.contains(deal.getDealId())) {
+                context.duplicate(error(candidateRows[i], deal, ImportErrorCode.ALREADY_STORED, null));
+            } else {
+                saved.add(deal);
+            }
+        }
+        context.saved(saved.size());
+        if (importProperties.getRollups().isEnabled()) {
+            dealRollups.add(saved);
+        }
+    }
+
+    /**
+     * Records the checkpoint of a resumable import after a chunk that committed nothing.
+     */
+    private void checkpoint(long position, ImportContext context) {
+        if (context.isResumable()) {
+            transactionTemplate.executeWithoutResult(status -> importCheckpoints.save(context, position));
+        }
+    }
 
-                Deal deal = Deal.toEntity(dto);
-                dealRepository.save(deal);
-                successCount++;
+    /**
+     * Writes the candidates of a chunk. A work unit of a distributed import writes at the same time as the other units
+     * of its file, which may hold some of the same dealIds: a chunk that conflicts or deadlocks with them is retried
+     * once with every dealId looked up, and then finds the dealIds they committed stored.
+     */
+    private Set<String> write(List<Deal> candidates, ImportContext context, Consumer<Set<String>> beforeCommit) {
+        try {
+            return write(candidates, context.getEngine(), beforeCommit);
+        } catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+            if (!context.isWorkUnit()) {
+                throw e;
+            }
+            log.warn("Chunk conflicted with another work unit of its import, retrying: {}", e.getMessage());
+            candidates.forEach(deal -> deal.setId(null));
+            if (context.getEngine() == IngestEngine.COPY) {
+                return write(candidates, IngestEngine.COPY, beforeCommit);
             }
+            List<String> dealIds = candidates.stream().map(Deal::getDealId).toList();
+            return inTransaction(() -> writeWithJpa(candidates, dealIds), beforeCommit);
+        }
+    }
 
-            log.info("CSV import completed: {} saved, {} duplicates, {} invalid.", successCount, duplicateCount, invalidCount);
+    /**
+     * Writes the candidates in one transaction and returns the dealIds that were already stored. A unique violation
+     * on a JPA chunk whose lookup was narrowed by the dealId filter means the filter missed a stored deal, so the
+     * chunk is retried once with every dealId looked up. {@code beforeCommit} receives the stored dealIds inside the
+     * transaction of each attempt.
+     */
+    private Set<String> write(List<Deal> candidates, IngestEngine engine, Consumer<Set<String>> beforeCommit) {
+        if (engine == IngestEngine.COPY) {
+            return inTransaction(() -> {
+                long started = System.nanoTime();
+                Set<String> stored = copyDealWriter.write(candidates);
+                importMetrics.record(ImportPhase.PERSIST, System.nanoTime() - started);
+                return stored;
+            }, beforeCommit);
+        }
 
-            return ResultDto.builder().
-                    saved(successCount).
-                    duplicates(duplicateCount).
-                    errors(errorMessages).
-                    invalid(invalidCount).
-                    build();
+        List<String> probes = new ArrayList<>(candidates.size());
+        for (Deal deal : candidates) {
+            if (dealIdFilter.mightContain(deal.getDealId())) {
+                probes.add(deal.getDealId());
+            }
+        }
 
+        try {
+            Set<String> stored = inTransaction(() -> writeWithJpa(candidates, probes), beforeCommit);
+            if (dealIdFilter.isReady()) {
+                dealIdFilter.falsePositives(probes.size() - stored.size());
+            }
+            return stored;
+        } catch (DataIntegrityViolationException e) {
+            if (probes.size() == candidates.size()) {
+                throw e;
+            }
+            log.warn("Chunk hit a stored dealId the filter ruled out, retrying with a full lookup");
+            candidates.forEach(deal -> deal.setId(null));
+            List<String> dealIds = candidates.stream().map(Deal::getDealId).toList();
+            return inTransaction(() -> writeWithJpa(candidates, dealIds), beforeCommit);
+        }
+    }
+
+    /**
+     * Runs {@code work} and then {@code beforeCommit} with its result in a new transaction, and records how long the
+     * commit took.
+     */
+    private <T> T inTransaction(Supplier<T> work, Consumer<T> beforeCommit) {
+        long[] workDone = new long[1];
+        T result = transactionTemplate.execute(status -> {
+            T value = work.get();
+            beforeCommit.accept(value);
+            workDone[0] = System.nanoTime();
+            return value;
+        });
+        importMetrics.record(ImportPhase.COMMIT, System.nanoTime() - workDone[0]);
+        return result;
+    }
 
+    private static ImportErrorDto error(long row, Deal deal, ImportErrorCode code, String message) {
+        return ImportErrorDto.builder().
+                row(row).
+                dealId(deal.getDealId()).
+                code(code).
+                message(message).
+                build();
+    }
+
+    /**
+     * Saves the candidates that are not stored yet and returns the dealIds of those that are. Only the dealIds in
+     * {@code probes} are looked up; the other candidates are known to be new.
+     */
+    private Set<String> writeWithJpa(List<Deal> candidates, List<String> probes) {
+        long started = System.nanoTime();
+        Set<String> existingIds = findStoredDealIds(probes);
+        long lookedUp = System.nanoTime();
+        importMetrics.record(ImportPhase.DEDUP_LOOKUP, lookedUp - started);
+
+        List<Deal> accepted = new ArrayList<>(candidates.size());
+        for (Deal deal : candidates) {
+            if (!existingIds.contains(deal.getDealId())) {
+                accepted.add(deal);
+            }
+        }
+        dealRepository.saveAll(accepted);
+        dealRepository.flush();
+        importMetrics.record(ImportPhase.PERSIST, System.nanoTime() - lookedUp);
+        return existingIds;
+    }
+
+    /**
+     * Looks up which of {@code dealIds} are already stored, issuing one query per {@code dedupBatchSize} dealIds.
+     */
+    private Set<String> findStoredDealIds(List<String> dealIds) {
+        int batchSize = Math.max(1, importProperties.getDedupBatchSize());
+        Set<String> stored = new HashSet<>();
+        for (int from = 0; from < dealIds.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, dealIds.size());
+            stored.addAll(dealRepository.findExistingDealIds(dealIds.subList(from, to)));
+        }
+        return stored;
+    }
+
+    private DealReader openRows(InputStream in) {
+        return openRows(in, importProperties.getDecoder());
+    }
+
+    /**
+     * Opens the fast decoder when asked for and the header allows it, and the OpenCSV reader otherwise.
+     */
+    private DealReader openRows(InputStream in, CsvDecoder decoderType) {
+        try {
+            if (decoderType == CsvDecoder.FAST) {
+                DealCsvDecoder decoder = new DealCsvDecoder(in);
+                if (decoder.readHeader()) {
+                    return decoder;
+                }
+                log.debug("CSV header not supported by the fast decoder, falling back to OpenCSV");
+                in = decoder.unreadInput();
+            }
+            return new OpenCsvDealReader(new InputStreamReader(in));
+        } catch (UncheckedIOException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw invalidFormat(e);
         }
     }
 
+    private Deal nextRow(DealReader rows) {
+        try {
+            return rows.next();
+        } catch (UncheckedIOException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw invalidFormat(e);
+        }
+    }
+
+    private IllegalArgumentException invalidFormat(RuntimeException e) {
+        log.error("Error parsing CSV file", e);
+        return new IllegalArgumentException("Invalid CSV format" + e.getMessage(), e);
+    }
+
 }
@@ -0,0 +1,353 @@
+package com.warehouse.warehouse.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.warehouse.warehouse.Dto.ChunkResultDto;
+import com.warehouse.warehouse.Dto.ImportErrorDto;
+import com.warehouse.warehouse.Dto.ImportJobDto;
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportJobNotFoundException;
+import com.warehouse.warehouse.models.DistributedImport;
+import com.warehouse.warehouse.models.ImportUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Imports one upload with the workers of every instance sharing the database. The upload is staged once, cut into
+ * work units of {@code deals.import.distributed.unit-rows} rows that are each a CSV file of their own behind the
+ * header of the upload. {@link ImportUnitWorker}s claim and import the units; the status of the import adds up
+ * their outcomes, so it reads the same on every instance.
+ * <p>
+ * dealIds are deduplicated in memory within a unit and by the dealId unique constraint across units, so a dealId
+ * repeated in two units is reported as already stored rather than as a duplicate in the file.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistributedImports {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<List<ImportErrorDto>> ERRORS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<ChunkResultDto>> FAILED_CHUNKS = new TypeReference<>() {
+    };
+
+    private static final String INSERT_IMPORT = """
+            INSERT INTO distributed_imports (id, engine, file_name, units, cancelled, created_at)
+            VALUES (?, ?, ?, 0, FALSE, ?)""";
+
+    private static final String INSERT_UNIT = """
+            INSERT INTO import_units (id, import_id, unit_no, first_row, row_count, payload, status, attempts,
+                                      processed_rows, chunks, saved, duplicates, invalid, failed)
+            VALUES (?, ?, ?, ?, ?, ?, 'QUEUED', 0, 0, 0, 0, 0, 0, 0)""";
+
+    private static final String SELECT_UNITS = """
+            SELECT unit_no, first_row, row_count, status, started_at, finished_at, processed_rows, chunks, saved,
+                   duplicates, invalid, failed, errors, failed_chunks, error
+            FROM import_units
+            WHERE import_id = ?
+            ORDER BY unit_no""";
+
+    private static final String CANCEL_QUEUED_UNITS = """
+            UPDATE import_units SET status = 'CANCELLED', payload = NULL, finished_at = ?
+            WHERE import_id = ? AND status = 'QUEUED'""";
+
+    private static final String DELETE_EXPIRED_UNITS = """
+            DELETE FROM import_units WHERE import_id IN (
+                SELECT d.id FROM distributed_imports d
+                WHERE d.created_at < ? AND NOT EXISTS (
+                    SELECT 1 FROM import_units u WHERE u.import_id = d.id AND u.status IN ('QUEUED', 'RUNNING')))""";
+
+    private static final String DELETE_EXPIRED_IMPORTS = """
+            DELETE FROM distributed_imports
+            WHERE created_at < ? AND NOT EXISTS (
+                SELECT 1 FROM import_units u WHERE u.import_id = distributed_imports.id)""";
+
+    private final DealService dealService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportProperties importProperties;
+
+    /**
+     * Stages {@code file} as work units for the workers of every instance and returns the id of its import.
+     */
+    public UUID submit(MultipartFile file, IngestEngine engine) throws IOException {
+        dealService.checkCsvFile(file);
+        evictExpired();
+
+        UUID id = UUID.randomUUID();
+        IngestEngine chosen = engine != null ? engine : importProperties.getEngine();
+        int units;
+        try (InputStream in = file.getInputStream()) {
+            units = transactionTemplate.execute(status -> {
+                try {
+                    return stage(id, chosen, file.getOriginalFilename(), in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info("Distributed import {} of file {} staged in {} work units", id, file.getOriginalFilename(), units);
+        return id;
+    }
+
+    /**
+     * Progress of the import {@code id}, with the result of all its units once they are done.
+     */
+    public ImportJobDto get(UUID id) {
+        List<DistributedImport> imports = jdbcTemplate.query(
+                "SELECT created_at, cancelled FROM distributed_imports WHERE id = ?",
+                (rs, row) -> DistributedImport.builder().
+                        id(id).
+                        createdAt(rs.getTimestamp("created_at").toInstant()).
+                        cancelled(rs.getBoolean("cancelled")).
+                        build(),
+                id);
+        if (imports.isEmpty()) {
+            throw new ImportJobNotFoundException("Import job " + id + " not found");
+        }
+        return toDto(imports.get(0), jdbcTemplate.query(SELECT_UNITS, DistributedImports::unit, id));
+    }
+
+    /**
+     * Cancels an import: its queued units never start and its running units stop at their next chunk boundary,
+     * keeping the chunks they already committed.
+     */
+    public ImportJobDto cancel(UUID id) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (jdbcTemplate.update("UPDATE distributed_imports SET cancelled = TRUE WHERE id = ?", id) == 0) {
+                throw new ImportJobNotFoundException("Import job " + id + " not found");
+            }
+            jdbcTemplate.update(CANCEL_QUEUED_UNITS, Timestamp.from(Instant.now()), id);
+        });
+        return get(id);
+    }
+
+    /**
+     * Cuts the upload into units of whole rows. Rows end at line breaks outside of quotes; blank lines are kept in
+     * their unit but not counted, as the decoders skip them.
+     */
+    private int stage(UUID id, IngestEngine engine, String fileName, InputStream in) throws IOException {
+        jdbcTemplate.update(INSERT_IMPORT, id, engine.name(), fileName, Timestamp.from(Instant.now()));
+
+        int unitRows = Math.max(1, importProperties.getDistributed().getUnitRows());
+        byte[] buffer = new byte[64 * 1024];
+        ByteArrayOutputStream unit = new ByteArrayOutputStream(64 * 1024);
+        byte[] header = null;
+        int units = 0;
+        int rows = 0;
+        long firstRow = 1;
+        boolean quoted = false;
+        boolean blank = true;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (b == '"') {
+                    quoted = !quoted;
+                    blank = false;
+                } else if (b == '\n' && !quoted) {
+                    unit.write(buffer, start, i + 1 - start);
+                    start = i + 1;
+                    if (header == null) {
+                        header = unit.toByteArray();
+                    } else if (!blank) {
+                        rows++;
+                    }
+                    blank = true;
+                    if (rows == unitRows) {
+                        insertUnit(id, units++, firstRow, rows, unit.toByteArray());
+                        firstRow += rows;
+                        rows = 0;
+                        unit.reset();
+                        unit.write(header);
+                    }
+                } else if (b != '\r') {
+                    blank = false;
+                }
+            }
+            unit.write(buffer, start, read - start);
+        }
+        if (header != null && !blank) {
+            rows++;
+        }
+        if (rows > 0) {
+            insertUnit(id, units++, firstRow, rows, unit.toByteArray());
+        }
+
+        jdbcTemplate.update("UPDATE distributed_imports SET units = ? WHERE id = ?", units, id);
+        return units;
+    }
+
+    private void insertUnit(UUID importId, int unitNo, long firstRow, int rows, byte[] payload) {
+        jdbcTemplate.update(INSERT_UNIT, UUID.randomUUID(), importId, unitNo, firstRow, rows, payload);
+    }
+
+    private ImportJobDto toDto(DistributedImport distributedImport, List<ImportUnit> units) {
+        int inlineErrors = importProperties.getReports().getInlineErrors();
+        long rows = 0;
+        int chunks = 0;
+        int saved = 0;
+        int duplicates = 0;
+        int invalid = 0;
+        int failed = 0;
+        List<ImportErrorDto> errors = new ArrayList<>();
+        List<ChunkResultDto> failedChunks = new ArrayList<>();
+        List<String> unitErrors = new ArrayList<>();
+        Instant startedAt = null;
+        Instant finishedAt = null;
+        boolean started = false;
+        boolean finished = true;
+        boolean unitFailed = false;
+
+        for (ImportUnit unit : units) {
+            rows += unit.getProcessedRows();
+            chunks += unit.getChunks();
+            saved += unit.getSaved();
+            duplicates += unit.getDuplicates();
+            invalid += unit.getInvalid();
+            failed += unit.getFailed();
+            for (ImportErrorDto error : read(unit.getErrors(), ERRORS)) {
+                if (errors.size() < inlineErrors) {
+                    errors.add(error);
+                }
+            }
+            failedChunks.addAll(read(unit.getFailedChunks(), FAILED_CHUNKS));
+            if (unit.getError() != null) {
+                unitErrors.add("Rows " + unit.getFirstRow() + "-" + (unit.getFirstRow() + unit.getRowCount() - 1)
+                        + ": " + unit.getError());
+            }
+
+            if (unit.getStartedAt() != null && (startedAt == null || unit.getStartedAt().isBefore(startedAt))) {
+                startedAt = unit.getStartedAt();
+            }
+            if (unit.getFinishedAt() != null && (finishedAt == null || unit.getFinishedAt().isAfter(finishedAt))) {
+                finishedAt = unit.getFinishedAt();
+            }
+            started |= unit.getStatus() != ImportJobStatus.QUEUED;
+            finished &= unit.getStatus().isFinished();
+            unitFailed |= unit.getStatus() == ImportJobStatus.FAILED;
+        }
+
+        ImportJobStatus status;
+        if (!finished) {
+            status = started ? ImportJobStatus.RUNNING : ImportJobStatus.QUEUED;
+        } else if (unitFailed) {
+            status = ImportJobStatus.FAILED;
+        } else {
+            status = distributedImport.isCancelled() ? ImportJobStatus.CANCELLED : ImportJobStatus.COMPLETED;
+        }
+        if (finished && finishedAt == null) {
+            finishedAt = distributedImport.getCreatedAt();
+        }
+
+        double seconds = startedAt != null
+                ? Duration.between(startedAt, finished ? finishedAt : Instant.now()).toNanos() / 1_000_000_000d
+                : 0;
+        ResultDto result = null;
+        if (finished) {
+            result = ResultDto.builder().
+                    saved(saved).
+                    duplicates(duplicates).
+                    invalid(invalid).
+                    failed(failed).
+                    chunks(chunks).
+                    failedChunks(failedChunks).
+                    errors(errors).
+                    errorsTruncated((long) duplicates + invalid + failed > errors.size()).
+                    build();
+        }
+        return ImportJobDto.builder().
+                id(distributedImport.getId()).
+                status(status.name()).
+                submittedAt(distributedImport.getCreatedAt()).
+                startedAt(startedAt).
+                finishedAt(finished ? finishedAt : null).
+                rowsProcessed(rows).
+                saved(saved).
+                duplicates(duplicates).
+                invalid(invalid).
+                failed(failed).
+                rowsPerSecond(seconds > 0 ? rows / seconds : 0).
+                error(unitErrors.isEmpty() ? null : String.join("; ", unitErrors)).
+                result(result).
+                build();
+    }
+
+    private void evictExpired() {
+        Timestamp expiry = Timestamp.from(Instant.now().minus(importProperties.getJobs().getRetention()));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_EXPIRED_UNITS, expiry);
+            jdbcTemplate.update(DELETE_EXPIRED_IMPORTS, expiry);
+        });
+    }
+
+    private static ImportUnit unit(ResultSet rs, int row) throws SQLException {
+        return ImportUnit.builder().
+                unitNo(rs.getInt("unit_no")).
+                firstRow(rs.getLong("first_row")).
+                rowCount(rs.getInt("row_count")).
+                status(ImportJobStatus.valueOf(rs.getString("status"))).
+                startedAt(instant(rs.getTimestamp("started_at"))).
+                finishedAt(instant(rs.getTimestamp("finished_at"))).
+                processedRows(rs.getLong("processed_rows")).
+                chunks(rs.getInt("chunks")).
+                saved(rs.getInt("saved")).
+                duplicates(rs.getInt("duplicates")).
+                invalid(rs.getInt("invalid")).
+                failed(rs.getInt("failed")).
+                errors(rs.getString("errors")).
+                failedChunks(rs.getString("failed_chunks")).
+                error(rs.getString("error")).
+                build();
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * Serializes the errors or failed chunks of a unit, for {@link ImportUnitWorker}.
+     */
+    static String write(Object value) {
+        try {
+            return JSON.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> List<T> read(String json, TypeReference<List<T>> type) {
+        if (json == null) {
+            return List.of();
+        }
+        try {
+            return JSON.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
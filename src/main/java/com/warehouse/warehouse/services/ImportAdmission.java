@@ -0,0 +1,267 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportLimitExceededException;
+import com.warehouse.warehouse.exception.ImportRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for imports: caps the uploads imported at the same time and the heap they reserve together.
+ * <p>
+ * An upload takes a slot and reserves heap for its chunk buffers and the dealIds seen in its file, estimated from
+ * its size, or the whole per-import budget when the size is unknown. Uploads that cannot get both wait in FIFO
+ * order up to {@code queueTimeout}, or are rejected right away once {@code maxQueued} are already waiting. While
+ * importing, the heap actually used is checked after every chunk: an import outgrowing its reservation takes more
+ * from the shared budget when it can, and fails otherwise.
+ * <p>
+ * Reservations are counted in KB so the budget fits the permits of a {@link Semaphore}.
+ */
+@Slf4j
+@Component
+public class ImportAdmission {
+
+    // Heap held by one buffered row: the Deal, its strings and the chunk lists referencing it
+    private static final long ROW_BYTES = 256;
+    // Upper bound of the in-file duplicate check per input byte: id bytes in the arena plus the table slots
+    private static final long HEAP_PER_INPUT_BYTE = 2;
+
+    private final ImportProperties importProperties;
+    private final ImportProperties.Admission properties;
+    private final Semaphore slots;
+    private final Semaphore memory;
+    private final int perImportKb;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer waits;
+    private final Counter queueFull;
+    private final Counter timedOut;
+    private final Counter outOfMemory;
+
+    public ImportAdmission(ImportProperties importProperties, ObjectProvider<MeterRegistry> registry) {
+        this.importProperties = importProperties;
+        this.properties = importProperties.getAdmission();
+        int maxConcurrent = Math.max(1, properties.getMaxConcurrent());
+        int budgetKb = kb(properties.getMemoryBudget().toBytes());
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.memory = new Semaphore(budgetKb, true);
+        this.perImportKb = Math.min(budgetKb, kb(properties.getMemoryPerImport().toBytes()));
+
+        MeterRegistry meters = registry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("deals.import.admission.queued", queued, AtomicInteger::get)
+                .description("Uploads waiting for a slot or memory")
+                .register(meters);
+        Gauge.builder("deals.import.admission.in.flight", slots, s -> maxConcurrent - s.availablePermits())
+                .description("Uploads holding an import slot")
+                .register(meters);
+        Gauge.builder("deals.import.admission.memory.reserved", memory, m -> (budgetKb - m.availablePermits()) * 1024d)
+                .description("Heap reserved by running imports")
+                .baseUnit("bytes")
+                .register(meters);
+        waits = Timer.builder("deals.import.admission.wait")
+                .description("Time uploads waited for admission")
+                .register(meters);
+        queueFull = rejections(meters, "queue_full");
+        timedOut = rejections(meters, "timeout");
+        outOfMemory = rejections(meters, "memory");
+    }
+
+    /**
+     * Admits an upload of {@code expectedBytes}, or of unknown size when negative, waiting in line for a slot and
+     * memory. Throws {@link ImportRejectedException} when the queue is full or the wait times out.
+     */
+    public Permit admit(long expectedBytes) {
+        return admit(expectedBytes, 1);
+    }
+
+    /**
+     * Admits an upload whose files are imported by {@code concurrency} threads at the same time, each holding its
+     * own chunk buffers, such as the entries of an archive.
+     */
+    public Permit admit(long expectedBytes, int concurrency) {
+        if (!properties.isEnabled()) {
+            return new Permit(0, 1, false);
+        }
+        int sharing = Math.max(1, concurrency);
+        if (queued.incrementAndGet() > Math.max(0, properties.getMaxQueued()) && slots.availablePermits() == 0) {
+            queued.decrementAndGet();
+            queueFull.increment();
+            throw rejected("Too many imports waiting, try again later");
+        }
+
+        Permit permit = null;
+        try {
+            permit = acquire(reservationKb(expectedBytes, sharing), sharing, properties.getQueueTimeout().toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queued.decrementAndGet();
+        }
+        if (permit == null) {
+            timedOut.increment();
+            throw rejected("No import slot or memory free within " + properties.getQueueTimeout().toSeconds()
+                    + " s, try again later");
+        }
+        return permit;
+    }
+
+    /**
+     * Admits an upload already accepted into a bounded queue, such as a background job, waiting in line as long as
+     * it takes.
+     */
+    public Permit await(long expectedBytes) throws InterruptedException {
+        if (!properties.isEnabled()) {
+            return new Permit(0, 1, false);
+        }
+        queued.incrementAndGet();
+        try {
+            return acquire(reservationKb(expectedBytes, 1), 1, Long.MAX_VALUE);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes a slot then {@code reserveKb} of memory within {@code timeoutNanos}; null when the wait times out.
+     */
+    private Permit acquire(int reserveKb, int concurrency, long timeoutNanos) throws InterruptedException {
+        long started = System.nanoTime();
+        if (!slots.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            return null;
+        }
+        boolean reserved = false;
+        try {
+            long left = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : timeoutNanos - (System.nanoTime() - started);
+            reserved = memory.tryAcquire(reserveKb, left, TimeUnit.NANOSECONDS);
+        } finally {
+            if (!reserved) {
+                slots.release();
+            }
+        }
+        if (!reserved) {
+            return null;
+        }
+        waits.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return new Permit(reserveKb, concurrency, true);
+    }
+
+    /**
+     * Checks the budgets of a running import before it persists its next chunk of {@code chunkRows}, growing its
+     * reservation when it needs more heap than it reserved.
+     */
+    void check(ImportContext context, int chunkRows) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // The imports sharing a permit, such as the entries of an archive, count against one row limit
+        Permit permit = context.admission();
+        long maxRows = properties.getMaxRowsPerImport();
+        if (maxRows > 0 && (context.getRows() + chunkRows > maxRows
+                || permit != null && permit.addRows(chunkRows) > maxRows)) {
+            throw new ImportLimitExceededException("Import exceeds the limit of " + maxRows + " rows");
+        }
+
+        // The imports sharing a permit each hold their chunk buffers, but share the dealIds seen
+        int sharing = permit != null ? permit.concurrency : 1;
+        long used = bufferBytes() * sharing + context.getAppearedIds().getHeapBytes();
+        if (kb(used) > perImportKb) {
+            throw new ImportLimitExceededException("Import needs more than the "
+                    + properties.getMemoryPerImport().toMegabytes() + " MB of heap allowed per import");
+        }
+        if (permit != null && !permit.ensure(kb(used))) {
+            outOfMemory.increment();
+            throw rejected("Import memory is exhausted by other imports, try again later");
+        }
+    }
+
+    private int reservationKb(long expectedBytes, int concurrency) {
+        if (expectedBytes < 0) {
+            return perImportKb;
+        }
+        long estimate = bufferBytes() * concurrency + expectedBytes * HEAP_PER_INPUT_BYTE;
+        return Math.min(perImportKb, kb(estimate));
+    }
+
+    /**
+     * Heap of the chunks one import holds at a time: the chunk being read and persisted, plus the pipeline queue.
+     */
+    private long bufferBytes() {
+        int chunks = importProperties.getPipeline().isEnabled()
+                ? Math.max(1, importProperties.getPipeline().getQueueCapacity()) + 2
+                : 2;
+        return (long) Math.max(1, importProperties.getChunkSize()) * chunks * ROW_BYTES;
+    }
+
+    private ImportRejectedException rejected(String message) {
+        log.warn("Import rejected: {}", message);
+        return new ImportRejectedException(message, properties.getRetryAfter());
+    }
+
+    private static int kb(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + 1023) / 1024);
+    }
+
+    private static Counter rejections(MeterRegistry meters, String reason) {
+        return Counter.builder("deals.import.admission.rejected")
+                .description("Uploads rejected by admission control")
+                .tag("reason", reason)
+                .register(meters);
+    }
+
+    /**
+     * A slot and a heap reservation held for one upload, released on close.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final int concurrency;
+        private final AtomicLong rows = new AtomicLong();
+        private int reservedKb;
+        private boolean held;
+
+        private Permit(int reservedKb, int concurrency, boolean held) {
+            this.reservedKb = reservedKb;
+            this.concurrency = concurrency;
+            this.held = held;
+        }
+
+        /**
+         * Grows the reservation to {@code kb} without waiting; false when the shared budget cannot cover it.
+         */
+        synchronized boolean ensure(int kb) {
+            if (!held || kb <= reservedKb) {
+                return true;
+            }
+            if (!memory.tryAcquire(kb - reservedKb)) {
+                return false;
+            }
+            reservedKb = kb;
+            return true;
+        }
+
+        /**
+         * Counts {@code count} more rows read under this permit and returns the total.
+         */
+        long addRows(int count) {
+            return rows.addAndGet(count);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (held) {
+                held = false;
+                memory.release(reservedKb);
+                slots.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.warehouse.warehouse.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.warehouse.warehouse.Dto.ChunkResultDto;
+import com.warehouse.warehouse.Dto.ImportCheckpointDto;
+import com.warehouse.warehouse.Dto.ImportErrorDto;
+import com.warehouse.warehouse.Repository.ImportCheckpointRepository;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportCheckpointNotFoundException;
+import com.warehouse.warehouse.exception.ImportInProgressException;
+import com.warehouse.warehouse.models.ImportCheckpoint;
+import com.warehouse.warehouse.utils.DealIdSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the checkpoints of resumable imports. An import is identified by a key chosen by the client or derived from
+ * the file content; its checkpoint is written in the transaction of every chunk, so it always matches what is
+ * committed, and a run started again with the same key continues after the last committed chunk.
+ * <p>
+ * Only one run of a key may be active at a time. On PostgreSQL a run holds an advisory lock on the key, so this
+ * holds across instances; a resumed run may land on any instance as long as they share the checkpoint directory.
+ */
+@Slf4j
+@Service
+public class ImportCheckpoints {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<List<ImportErrorDto>> ERRORS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<ChunkResultDto>> FAILED_CHUNKS = new TypeReference<>() {
+    };
+
+    private final ImportCheckpointRepository repository;
+    private final ImportReports importReports;
+    private final ImportProperties importProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directory;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private Boolean postgres;
+
+    public ImportCheckpoints(ImportCheckpointRepository repository, ImportReports importReports,
+                             ImportProperties importProperties, TransactionTemplate transactionTemplate,
+                             JdbcTemplate jdbcTemplate) {
+        this.repository = repository;
+        this.importReports = importReports;
+        this.importProperties = importProperties;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Paths.get(importProperties.getCheckpoints().getDirectory());
+    }
+
+    /**
+     * Key of an upload identified by its content: the SHA-256 of its bytes.
+     */
+    public static String contentKey(InputStream in) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (DigestInputStream digesting = new DigestInputStream(in, digest)) {
+                digesting.transferTo(OutputStream.nullOutputStream());
+            }
+            return "sha256:" + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public ImportCheckpointDto find(String key) {
+        ImportCheckpoint checkpoint = repository.findById(key)
+                .orElseThrow(() -> new ImportCheckpointNotFoundException("No checkpoint for import " + key));
+        return ImportCheckpointDto.builder().
+                key(checkpoint.getImportKey()).
+                engine(checkpoint.getEngine().name()).
+                byteOffset(checkpoint.getByteOffset()).
+                rows(checkpoint.getRowNumber()).
+                chunks(checkpoint.getChunks()).
+                saved(checkpoint.getSaved()).
+                duplicates(checkpoint.getDuplicates()).
+                invalid(checkpoint.getInvalid()).
+                failed(checkpoint.getFailed()).
+                completed(checkpoint.isCompleted()).
+                updatedAt(checkpoint.getUpdatedAt()).
+                build();
+    }
+
+    /**
+     * Starts a run of the import {@code key}, from its checkpoint when it has one. Every run must be given back
+     * through {@link #release(ResumableImport)}.
+     */
+    ResumableImport open(String key, IngestEngine engine) {
+        if (key == null || key.isBlank() || key.length() > 128) {
+            throw new IllegalArgumentException("Import key must be 1 to 128 characters");
+        }
+        if (!running.add(key)) {
+            throw new ImportInProgressException("Import " + key + " is already running");
+        }
+        Connection lock = null;
+        try {
+            lock = lock(key);
+            Path idsPath = directory.resolve(HexFormat.of().formatHex(sha256(key)) + ".ids");
+            ImportCheckpoint stored = repository.findById(key).orElse(null);
+            if (stored != null) {
+                log.info("Resuming import {} from byte {}, row {}", key, stored.getByteOffset(), stored.getRowNumber());
+                return new ResumableImport(key, stored, true, idsPath, lock);
+            }
+            ImportCheckpoint checkpoint = ImportCheckpoint.builder().
+                    importKey(key).
+                    engine(engine != null ? engine : importProperties.getEngine()).
+                    reportId(UUID.randomUUID()).
+                    build();
+            return new ResumableImport(key, checkpoint, false, idsPath, lock);
+        } catch (RuntimeException e) {
+            unlock(key, lock);
+            running.remove(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the advisory lock of {@code key} on a connection of its own, held until the run is released. Null on
+     * databases without advisory locks, where only runs in this instance are kept apart.
+     */
+    private Connection lock(String key) {
+        if (!isPostgres()) {
+            return null;
+        }
+        Connection connection = null;
+        try {
+            connection = jdbcTemplate.getDataSource().getConnection();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, lockId(key));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next() && resultSet.getBoolean(1)) {
+                        return connection;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            close(connection);
+            throw new DataAccessResourceFailureException("Failed to lock import " + key, e);
+        }
+        close(connection);
+        throw new ImportInProgressException("Import " + key + " is already running on another instance");
+    }
+
+    private void unlock(String key, Connection lock) {
+        if (lock == null) {
+            return;
+        }
+        try (PreparedStatement statement = lock.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, lockId(key));
+            statement.execute();
+        } catch (SQLException e) {
+            log.warn("Failed to unlock import {}", key, e);
+        } finally {
+            close(lock);
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Failed to close import lock connection", e);
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    /**
+     * The context of a run, holding the outcome recorded at the checkpoint when the run resumes one.
+     */
+    ImportContext context(ResumableImport resumable) {
+        ImportCheckpoint checkpoint = resumable.getCheckpoint();
+        int inlineErrors = importProperties.getReports().getInlineErrors();
+        ImportContext context;
+        if (resumable.isResumed()) {
+            context = new ImportContext(checkpoint.getEngine(), importReports.reopen(checkpoint.getReportId(),
+                    checkpoint.getReportBytes(), checkpoint.getReportEntries()), inlineErrors,
+                    resumable.isCompleted() ? new DealIdSet() : resumable.loadAppearedIds(newAppearedIds()));
+            context.restore(checkpoint, read(checkpoint.getErrors(), ERRORS), read(checkpoint.getFailedChunks(), FAILED_CHUNKS));
+        } else {
+            context = new ImportContext(checkpoint.getEngine(), importReports.reopen(checkpoint.getReportId(), 0, 0),
+                    inlineErrors, newAppearedIds());
+        }
+        context.resumable(resumable);
+        return context;
+    }
+
+    private DealIdSet newAppearedIds() {
+        return new DealIdSet(importProperties.getInFileDedup());
+    }
+
+    /**
+     * Records that the rows up to decoder {@code position} are done. Must run in the transaction committing them.
+     */
+    void save(ImportContext context, long position) {
+        ResumableImport resumable = context.resumable();
+        resumable.getCheckpoint().setByteOffset(resumable.fileOffset(position));
+        record(context);
+    }
+
+    /**
+     * Marks the import done; running it again returns the same result without importing anything.
+     */
+    void complete(ImportContext context) {
+        context.resumable().getCheckpoint().setCompleted(true);
+        transactionTemplate.executeWithoutResult(status -> record(context));
+        context.resumable().deleteIds();
+    }
+
+    private void record(ImportContext context) {
+        ResumableImport resumable = context.resumable();
+        ImportCheckpoint checkpoint = resumable.getCheckpoint();
+        ImportErrorReport.Mark report = context.getReport().mark();
+
+        checkpoint.setRowNumber(context.getRows());
+        checkpoint.setChunks(context.getChunks());
+        checkpoint.setSaved(context.getSaved());
+        checkpoint.setDuplicates(context.getDuplicates());
+        checkpoint.setInvalid(context.getInvalid());
+        checkpoint.setFailed(context.getFailed());
+        checkpoint.setReportBytes(report.bytes());
+        checkpoint.setReportEntries(report.entries());
+        checkpoint.setIdsBytes(resumable.flushIds());
+        checkpoint.setErrors(write(context.getErrors()));
+        checkpoint.setFailedChunks(write(context.getFailedChunks()));
+        checkpoint.setUpdatedAt(Instant.now());
+        repository.save(checkpoint);
+    }
+
+    void release(ResumableImport resumable) {
+        try {
+            resumable.close();
+        } finally {
+            unlock(resumable.getKey(), resumable.getLock());
+            running.remove(resumable.getKey());
+        }
+    }
+
+    private static long lockId(String key) {
+        return ByteBuffer.wrap(sha256(key)).getLong();
+    }
+
+    private static byte[] sha256(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String write(Object value) {
+        try {
+            return JSON.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> List<T> read(String json, TypeReference<List<T>> type) {
+        if (json == null) {
+            return List.of();
+        }
+        try {
+            return JSON.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.Dto.ChunkResultDto;
+import com.warehouse.warehouse.Dto.ImportErrorDto;
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.models.ImportCheckpoint;
+import com.warehouse.warehouse.utils.DealIdSet;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running state of a single import: counters, the first row errors, the error report and the dealIds already seen
+ * in the file.
+ * <p>
+ * Only the importing thread writes to it; counters are volatile so progress can be read from other threads.
+ */
+@Getter
+public class ImportContext {
+
+    private final IngestEngine engine;
+    private volatile long startedAt = System.nanoTime();
+
+    private volatile long rows;
+    private volatile long bytes;
+    private volatile int chunks;
+    private volatile int saved;
+    private volatile int duplicates;
+    private volatile int invalid;
+    private volatile int failed;
+    private volatile boolean cancelled;
+    private final List<ChunkResultDto> failedChunks = new ArrayList<>();
+    private final List<ImportErrorDto> errors = new ArrayList<>();
+    private final int inlineErrors;
+    private final ImportErrorReport report;
+    private final DealIdSet appearedIds;
+    @Getter(AccessLevel.NONE)
+    private final boolean sharedAppearedIds;
+    @Getter(AccessLevel.NONE)
+    private ResumableImport resumable;
+    @Getter(AccessLevel.NONE)
+    private ImportAdmission.Permit admission;
+    @Getter(AccessLevel.NONE)
+    private long rowOffset;
+    @Getter(AccessLevel.NONE)
+    private boolean workUnit;
+
+    public ImportContext(IngestEngine engine) {
+        this(engine, null, 0, new DealIdSet());
+    }
+
+    /**
+     * @param report       receives every row error, or null to keep only the inline ones
+     * @param inlineErrors maximum number of row errors kept in memory for the result
+     * @param appearedIds  dealIds seen so far in the file, closed with the context
+     */
+    public ImportContext(IngestEngine engine, ImportErrorReport report, int inlineErrors, DealIdSet appearedIds) {
+        this(engine, report, inlineErrors, appearedIds, false);
+    }
+
+    /**
+     * @param shared whether {@code appearedIds} is shared with the imports of other files deduplicated together;
+     *               its owner then closes it once they are all done
+     */
+    public ImportContext(IngestEngine engine, ImportErrorReport report, int inlineErrors, DealIdSet appearedIds,
+                         boolean shared) {
+        this.engine = engine;
+        this.report = report;
+        this.inlineErrors = inlineErrors;
+        this.appearedIds = appearedIds;
+        this.sharedAppearedIds = shared;
+    }
+
+    /**
+     * Restarts the clock of the rates, for a context created before its import starts, such as a queued job.
+     */
+    void started() {
+        startedAt = System.nanoTime();
+    }
+
+    /**
+     * Asks the import to stop at the next chunk boundary.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public double getRowsPerSecond() {
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000d;
+        return seconds > 0 ? rows / seconds : 0;
+    }
+
+    public double getBytesPerSecond() {
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000d;
+        return seconds > 0 ? bytes / seconds : 0;
+    }
+
+    void bytesRead(long count) {
+        bytes += count;
+    }
+
+    boolean markAppeared(String dealId) {
+        boolean added = appearedIds.add(dealId);
+        if (added && resumable != null) {
+            resumable.appeared(dealId);
+        }
+        return added;
+    }
+
+    boolean isResumable() {
+        return resumable != null;
+    }
+
+    ResumableImport resumable() {
+        return resumable;
+    }
+
+    void resumable(ResumableImport resumable) {
+        this.resumable = resumable;
+    }
+
+    boolean isWorkUnit() {
+        return workUnit;
+    }
+
+    ImportAdmission.Permit admission() {
+        return admission;
+    }
+
+    /**
+     * Ties the import to the admission {@code permit} its heap use is checked against.
+     */
+    void admitted(ImportAdmission.Permit permit) {
+        this.admission = permit;
+    }
+
+    /**
+     * Makes this the import of one work unit of a distributed import, whose rows are numbered after the
+     * {@code firstRow - 1} rows of the units before it. The other units of the file are imported at the same time.
+     */
+    void workUnit(long firstRow) {
+        this.rowOffset = firstRow - 1;
+        this.workUnit = true;
+    }
+
+    /**
+     * Continues from the state recorded in {@code checkpoint}, so the result covers the rows imported before it.
+     */
+    void restore(ImportCheckpoint checkpoint, List<ImportErrorDto> errors, List<ChunkResultDto> failedChunks) {
+        rows = checkpoint.getRowNumber();
+        chunks = checkpoint.getChunks();
+        saved = checkpoint.getSaved();
+        duplicates = checkpoint.getDuplicates();
+        invalid = checkpoint.getInvalid();
+        failed = checkpoint.getFailed();
+        this.errors.addAll(errors);
+        this.failedChunks.addAll(failedChunks);
+    }
+
+    /**
+     * Captures the outcome recorded so far, for a later {@link #rollbackTo(Mark)}.
+     */
+    Mark mark() {
+        return new Mark(saved, duplicates, errors.size(), report != null ? report.mark() : null);
+    }
+
+    /**
+     * Forgets the rows saved and the errors recorded after {@code mark}, once the chunk they belong to was rolled back.
+     */
+    void rollbackTo(Mark mark) {
+        saved = mark.saved();
+        duplicates = mark.duplicates();
+        errors.subList(mark.errors(), errors.size()).clear();
+        if (report != null) {
+            report.rollbackTo(mark.report());
+        }
+    }
+
+    long nextChunk(int size) {
+        long firstRow = rowOffset + rows + 1;
+        rows += size;
+        chunks++;
+        return firstRow;
+    }
+
+    /**
+     * Counts only the rows up to {@code row} as read, for a run that stops part way through its last chunk.
+     */
+    void stoppedAt(long row) {
+        rows = row - rowOffset;
+    }
+
+    void saved(int count) {
+        saved += count;
+    }
+
+    void duplicate(ImportErrorDto error) {
+        record(error);
+        duplicates++;
+    }
+
+    void invalid(ImportErrorDto error) {
+        record(error);
+        invalid++;
+    }
+
+    void chunkFailed(ChunkResultDto chunk, List<ImportErrorDto> rowErrors) {
+        failedChunks.add(chunk);
+        failed += chunk.getRows();
+        rowErrors.forEach(this::record);
+    }
+
+    void flushReport() {
+        if (report != null) {
+            report.flush();
+        }
+    }
+
+    /**
+     * Closes the error report and releases the dealIds seen unless they are shared.
+     */
+    void close() {
+        if (report != null) {
+            report.close();
+        }
+        if (!sharedAppearedIds) {
+            appearedIds.close();
+        }
+    }
+
+    private void record(ImportErrorDto error) {
+        if (errors.size() < inlineErrors) {
+            errors.add(error);
+        }
+        if (report != null) {
+            report.write(error);
+        }
+    }
+
+    private long errorCount() {
+        return (long) duplicates + invalid + failed;
+    }
+
+    public ResultDto toResult() {
+        return ResultDto.builder().
+                saved(saved).
+                duplicates(duplicates).
+                errors(List.copyOf(errors)).
+                errorsTruncated(errorCount() > errors.size()).
+                reportUrl(report != null && report.getEntries() > 0 ? ImportReports.url(report.getId()) : null).
+                invalid(invalid).
+                failed(failed).
+                chunks(chunks).
+                failedChunks(failedChunks).
+                build();
+    }
+
+    record Mark(int saved, int duplicates, int errors, ImportErrorReport.Mark report) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.warehouse.warehouse.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.warehouse.warehouse.Dto.ImportErrorDto;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * NDJSON file receiving every row error of one import as it happens. The file is only created once the first
+ * error is written.
+ */
+@Getter
+public class ImportErrorReport implements Closeable {
+
+    private static final ObjectWriter WRITER = new ObjectMapper().writerFor(ImportErrorDto.class);
+
+    private final UUID id;
+    private final Path path;
+    private long entries;
+    private long bytes;
+    private FileChannel channel;
+    private BufferedWriter writer;
+
+    public ImportErrorReport(UUID id, Path path) {
+        this(id, path, 0, 0);
+    }
+
+    /**
+     * A report continuing an earlier one: the file is cut back to its first {@code bytes}, holding {@code entries}
+     * errors, and further errors are appended.
+     */
+    ImportErrorReport(UUID id, Path path, long bytes, long entries) {
+        this.id = id;
+        this.path = path;
+        this.bytes = bytes;
+        this.entries = entries;
+    }
+
+    public void write(ImportErrorDto error) {
+        try {
+            if (writer == null) {
+                open();
+            }
+            writer.write(WRITER.writeValueAsString(error));
+            writer.newLine();
+            entries++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write import error report " + path, e);
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(bytes);
+        channel.position(bytes);
+        writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Makes the errors written so far visible to readers of the file.
+     */
+    public void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            bytes = channel.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write import error report " + path, e);
+        }
+    }
+
+    /**
+     * Flushes the report and returns its current end, for a later {@link #rollbackTo(Mark)}.
+     */
+    Mark mark() {
+        flush();
+        return new Mark(bytes, entries);
+    }
+
+    /**
+     * Drops every error written after {@code mark}.
+     */
+    void rollbackTo(Mark mark) {
+        flush();
+        try {
+            if (channel != null) {
+                channel.truncate(mark.bytes());
+                channel.position(mark.bytes());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write import error report " + path, e);
+        }
+        bytes = mark.bytes();
+        entries = mark.entries();
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            flush();
+            writer.close();
+            writer = null;
+            channel = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write import error report " + path, e);
+        }
+    }
+
+    record Mark(long bytes, long entries) {
+    }
+}
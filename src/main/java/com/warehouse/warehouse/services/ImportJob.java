@@ -0,0 +1,51 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.Dto.ResultDto;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+/**
+ * An import running in the background. Status fields are written by the job thread and read by the
+ * progress endpoints.
+ */
+@Getter
+public class ImportJob {
+
+    private final UUID id = UUID.randomUUID();
+    private final Instant submittedAt = Instant.now();
+    private final ImportContext context;
+    private final Path spooled;
+
+    private volatile ImportJobStatus status = ImportJobStatus.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile ResultDto result;
+    private volatile String error;
+    private volatile Future<?> future;
+
+    ImportJob(ImportContext context, Path spooled) {
+        this.context = context;
+        this.spooled = spooled;
+    }
+
+    void started() {
+        context.started();
+        startedAt = Instant.now();
+        status = ImportJobStatus.RUNNING;
+    }
+
+    void finished(ImportJobStatus status, ResultDto result, String error) {
+        this.result = result;
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = status;
+    }
+
+    void submitted(Future<?> future) {
+        this.future = future;
+    }
+}
@@ -0,0 +1,202 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.Dto.ImportJobDto;
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportCancelledException;
+import com.warehouse.warehouse.exception.ImportJobNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs imports in the background on a bounded executor and keeps their progress available for polling.
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+    private final DealService dealService;
+    private final ImportAdmission importAdmission;
+    private final ImportProperties.Jobs properties;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService progressScheduler;
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(DealService dealService, ImportAdmission importAdmission,
+                            ImportProperties importProperties) {
+        this.dealService = dealService;
+        this.importAdmission = importAdmission;
+        this.properties = importProperties.getJobs();
+        int maxConcurrent = Math.max(1, properties.getMaxConcurrent());
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> new Thread(runnable, "deal-import-job-" + counter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.progressScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deal-import-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Spools {@code file} to a temporary file and queues its import. Throws
+     * {@link java.util.concurrent.RejectedExecutionException} when the job queue is full.
+     */
+    public ImportJob submit(MultipartFile file, IngestEngine engine) throws IOException {
+        dealService.checkCsvFile(file);
+        evictExpiredJobs();
+
+        Path spooled = Files.createTempFile("deals-import-", ".csv");
+        file.transferTo(spooled);
+
+        ImportJob job = new ImportJob(dealService.newContext(engine), spooled);
+        jobs.put(job.getId(), job);
+        try {
+            job.submitted(executor.submit(() -> run(job)));
+        } catch (RuntimeException e) {
+            jobs.remove(job.getId());
+            job.getContext().close();
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        log.info("Import job {} queued for file {}", job.getId(), file.getOriginalFilename());
+        return job;
+    }
+
+    public ImportJob get(UUID id) {
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ImportJobNotFoundException("Import job " + id + " not found");
+        }
+        return job;
+    }
+
+    /**
+     * Cancels a job. A queued job never starts; a running job stops at its next chunk boundary, keeping the
+     * chunks it already committed.
+     */
+    public ImportJob cancel(UUID id) {
+        ImportJob job = get(id);
+        job.getContext().cancel();
+        if (job.getFuture() instanceof Runnable queued && executor.remove(queued)) {
+            job.finished(ImportJobStatus.CANCELLED, job.getContext().toResult(), null);
+            job.getContext().close();
+            deleteQuietly(job.getSpooled());
+        }
+        return job;
+    }
+
+    /**
+     * Streams progress events for a job until it finishes.
+     */
+    public SseEmitter subscribe(UUID id) {
+        ImportJob job = get(id);
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        Runnable stop = () -> {
+            ScheduledFuture<?> scheduled = task.get();
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        };
+
+        task.set(progressScheduler.scheduleAtFixedRate(() -> {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(toDto(job)));
+                if (job.getStatus().isFinished()) {
+                    emitter.complete();
+                    stop.run();
+                }
+            } catch (IOException | IllegalStateException e) {
+                stop.run();
+            }
+        }, 0, properties.getProgressInterval().toMillis(), TimeUnit.MILLISECONDS));
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+        emitter.onError(error -> stop.run());
+        return emitter;
+    }
+
+    public ImportJobDto toDto(ImportJob job) {
+        ImportContext context = job.getContext();
+        return ImportJobDto.builder().
+                id(job.getId()).
+                status(job.getStatus().name()).
+                submittedAt(job.getSubmittedAt()).
+                startedAt(job.getStartedAt()).
+                finishedAt(job.getFinishedAt()).
+                rowsProcessed(context.getRows()).
+                saved(context.getSaved()).
+                duplicates(context.getDuplicates()).
+                invalid(context.getInvalid()).
+                failed(context.getFailed()).
+                rowsPerSecond(context.getRowsPerSecond()).
+                error(job.getError()).
+                result(job.getResult()).
+                build();
+    }
+
+    private void run(ImportJob job) {
+        // Jobs already waited in the bounded job queue, so they wait for admission instead of being rejected
+        try (ImportAdmission.Permit permit = importAdmission.await(Files.size(job.getSpooled()));
+             InputStream in = Files.newInputStream(job.getSpooled())) {
+            job.started();
+            job.getContext().admitted(permit);
+            ResultDto result = dealService.importCsv(in, job.getContext());
+            job.finished(ImportJobStatus.COMPLETED, result, null);
+        } catch (ImportCancelledException e) {
+            log.info("Import job {} cancelled after {} rows", job.getId(), job.getContext().getRows());
+            job.finished(ImportJobStatus.CANCELLED, job.getContext().toResult(), null);
+        } catch (Exception e) {
+            log.error("Import job {} failed", job.getId(), e);
+            job.finished(ImportJobStatus.FAILED, job.getContext().toResult(), e.getMessage());
+        } finally {
+            // Already closed by the import, unless it failed before starting
+            job.getContext().close();
+            deleteQuietly(job.getSpooled());
+        }
+    }
+
+    private void evictExpiredJobs() {
+        Instant expiry = Instant.now().minus(properties.getRetention());
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt().isBefore(expiry));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled import file {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(job -> job.getContext().cancel());
+        executor.shutdown();
+        progressScheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,149 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.Dto.ImportErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Import meters. Every meter is registered up front or on the first use of its tag, and recorded once per chunk or
+ * per row outcome, so recording never allocates.
+ */
+@Component
+public class ImportMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<ImportPhase, Timer> phases = new EnumMap<>(ImportPhase.class);
+    private final Map<ImportErrorCode, Counter> rejectedRows = new EnumMap<>(ImportErrorCode.class);
+    private final Map<String, Counter> invalidRows = new ConcurrentHashMap<>();
+    private final Counter savedRows;
+    private final Timer chunks;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final Set<ImportContext> active = ConcurrentHashMap.newKeySet();
+
+    public ImportMetrics(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry.getIfAvailable(SimpleMeterRegistry::new);
+
+        for (ImportPhase phase : ImportPhase.values()) {
+            phases.put(phase, Timer.builder("deals.import.phase")
+                    .description("Time spent per chunk in each import phase")
+                    .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                    .register(this.registry));
+        }
+        for (ImportErrorCode code : ImportErrorCode.values()) {
+            if (code != ImportErrorCode.INVALID_DEAL) {
+                rejectedRows.put(code, rowCounter(outcome(code), code.name()));
+            }
+        }
+        savedRows = rowCounter("saved", "none");
+        chunks = Timer.builder("deals.import.chunk")
+                .description("Time to validate, deduplicate and commit one chunk")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(this.registry);
+
+        FunctionCounter.builder("deals.import.rows.processed", rows, LongAdder::sum)
+                .register(this.registry);
+        FunctionCounter.builder("deals.import.bytes.processed", bytes, LongAdder::sum)
+                .baseUnit("bytes")
+                .register(this.registry);
+        Gauge.builder("deals.import.active", active, Set::size)
+                .register(this.registry);
+        Gauge.builder("deals.import.rows.per.second", this, ImportMetrics::rowsPerSecond)
+                .description("Rows per second over the imports currently running")
+                .register(this.registry);
+        Gauge.builder("deals.import.bytes.per.second", this, ImportMetrics::bytesPerSecond)
+                .description("Input bytes per second over the imports currently running")
+                .baseUnit("bytes")
+                .register(this.registry);
+    }
+
+    void started(ImportContext context) {
+        active.add(context);
+    }
+
+    void finished(ImportContext context) {
+        active.remove(context);
+        rows.add(context.getRows());
+        bytes.add(context.getBytes());
+    }
+
+    void record(ImportPhase phase, long nanos) {
+        phases.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void chunk(long nanos) {
+        chunks.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void saved(int count) {
+        savedRows.increment(count);
+    }
+
+    void rejected(ImportErrorCode code) {
+        rejectedRows.get(code).increment();
+    }
+
+    void rejected(ImportErrorCode code, int count) {
+        rejectedRows.get(code).increment(count);
+    }
+
+    /**
+     * Counts an invalid row under the validator's reason, which is one of a fixed set of messages.
+     */
+    void invalid(String reason) {
+        Counter counter = invalidRows.get(reason);
+        if (counter == null) {
+            counter = invalidRows.computeIfAbsent(reason, key -> rowCounter("invalid", key));
+        }
+        counter.increment();
+    }
+
+    private double rowsPerSecond() {
+        double total = 0;
+        for (ImportContext context : active) {
+            total += context.getRowsPerSecond();
+        }
+        return total;
+    }
+
+    private double bytesPerSecond() {
+        double total = 0;
+        for (ImportContext context : active) {
+            total += context.getBytesPerSecond();
+        }
+        return total;
+    }
+
+    private Counter rowCounter(String outcome, String reason) {
+        return Counter.builder("deals.import.rows")
+                .description("Imported rows by outcome")
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static String outcome(ImportErrorCode code) {
+        return switch (code) {
+            case DUPLICATE_IN_FILE, ALREADY_STORED -> "duplicate";
+            case INVALID_DEAL -> "invalid";
+            case CHUNK_FAILED -> "failed";
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.warehouse.warehouse.services;
+
+public enum ImportPhase {
+
+    /**
+     * Reading and decoding the rows of a chunk.
+     */
+    PARSE,
+
+    /**
+     * Validating the rows of a chunk.
+     */
+    VALIDATE,
+
+    /**
+     * Looking up which dealIds of a chunk are already stored.
+     */
+    DEDUP_LOOKUP,
+
+    /**
+     * Writing the accepted deals of a chunk.
+     */
+    PERSIST,
+
+    /**
+     * Committing the chunk transaction.
+     */
+    COMMIT
+}
@@ -0,0 +1,115 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.config.ImportProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Staged import pipeline: a reader thread pulls items from the source, a shared pool of workers transforms them
+ * in parallel and the calling thread consumes the results in source order.
+ * <p>
+ * At most {@code queueCapacity} items of one run are in flight, so a slow consumer blocks the reader instead of
+ * letting parsed rows pile up in memory.
+ */
+@Slf4j
+@Component
+public class ImportPipeline {
+
+    private static final Future<Object> END_OF_INPUT = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService readers;
+    private final ExecutorService workers;
+    private final int queueCapacity;
+
+    public ImportPipeline(ImportProperties importProperties) {
+        ImportProperties.Pipeline pipeline = importProperties.getPipeline();
+        int workerCount = pipeline.getWorkers() > 0 ? pipeline.getWorkers() : Runtime.getRuntime().availableProcessors();
+        this.readers = Executors.newCachedThreadPool(daemonThreads("deal-read-"));
+        this.workers = Executors.newFixedThreadPool(workerCount, daemonThreads("deal-validate-"));
+        this.queueCapacity = Math.max(1, pipeline.getQueueCapacity());
+        log.info("Import pipeline started with {} workers and queue capacity {}", workerCount, queueCapacity);
+    }
+
+    /**
+     * Runs {@code source} until it returns null, applies {@code stage} on the worker pool and hands each result to
+     * {@code sink} on the calling thread, in the order the source produced them. The first failure of any stage
+     * stops the run and is rethrown.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, R> void run(Supplier<T> source, Function<T, R> stage, Consumer<R> sink) {
+        BlockingQueue<Future<R>> inFlight = new ArrayBlockingQueue<>(queueCapacity);
+        Future<R> endOfInput = (Future<R>) END_OF_INPUT;
+
+        Future<?> reader = readers.submit(() -> {
+            try {
+                T item;
+                while ((item = source.get()) != null) {
+                    T input = item;
+                    inFlight.put(workers.submit(() -> stage.apply(input)));
+                }
+            } catch (RuntimeException | Error e) {
+                inFlight.put(CompletableFuture.failedFuture(e));
+                return null;
+            }
+            inFlight.put(endOfInput);
+            return null;
+        });
+
+        try {
+            Future<R> next;
+            while ((next = inFlight.take()) != endOfInput) {
+                sink.accept(await(next));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import pipeline interrupted", e);
+        } finally {
+            reader.cancel(true);
+            inFlight.forEach(pending -> pending.cancel(true));
+        }
+    }
+
+    private static <R> R await(Future<R> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Import pipeline stage failed", cause);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    void shutdown() {
+        readers.shutdownNow();
+        workers.shutdownNow();
+    }
+}
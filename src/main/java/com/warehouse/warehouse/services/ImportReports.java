@@ -0,0 +1,97 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportReportNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Creates the error reports of imports and serves them for download until they expire.
+ */
+@Slf4j
+@Component
+public class ImportReports {
+
+    private static final String SUFFIX = ".ndjson";
+
+    private final ImportProperties.Reports properties;
+    private final Path directory;
+
+    public ImportReports(ImportProperties importProperties) {
+        this.properties = importProperties.getReports();
+        this.directory = Paths.get(properties.getDirectory());
+    }
+
+    public ImportErrorReport create() {
+        evictExpiredReports();
+        UUID id = UUID.randomUUID();
+        return new ImportErrorReport(id, directory.resolve(id + SUFFIX));
+    }
+
+    /**
+     * Continues the report {@code id} of an interrupted import from the state recorded at its last checkpoint. A
+     * report that expired in the meantime is started again.
+     */
+    public ImportErrorReport reopen(UUID id, long bytes, long entries) {
+        Path path = directory.resolve(id + SUFFIX);
+        try {
+            if (bytes == 0 || (Files.isRegularFile(path) && Files.size(path) >= bytes)) {
+                return new ImportErrorReport(id, path, bytes, entries);
+            }
+        } catch (IOException e) {
+            log.warn("Could not read import report {}", path, e);
+        }
+        log.warn("Import report {} is gone, errors found before the checkpoint are missing from it", id);
+        return new ImportErrorReport(id, path);
+    }
+
+    public Path find(UUID id) {
+        Path path = directory.resolve(id + SUFFIX);
+        if (!Files.isRegularFile(path)) {
+            throw new ImportReportNotFoundException("Import report " + id + " not found");
+        }
+        return path;
+    }
+
+    public static String url(UUID id) {
+        return "/csv/import/reports/" + id;
+    }
+
+    private void evictExpiredReports() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Instant expiry = Instant.now().minus(properties.getRetention());
+        try (Stream<Path> reports = Files.list(directory)) {
+            reports.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .filter(path -> isOlderThan(path, expiry))
+                    .forEach(ImportReports::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not list import reports in {}", directory, e);
+        }
+    }
+
+    private static boolean isOlderThan(Path path, Instant expiry) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(expiry);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete import report {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportCancelledException;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports the work units of {@link DistributedImports}, whichever instance they were uploaded to.
+ * <p>
+ * Idle workers look for units every {@code poll-interval}. A unit is claimed in a short transaction, selected with
+ * {@code FOR UPDATE SKIP LOCKED} on PostgreSQL so concurrent workers never wait on each other, and imported outside
+ * of it. While a unit runs, its worker records a heartbeat with the unit's progress. A unit whose heartbeat is older
+ * than the lease, because its instance stopped, is claimed again and imported from its first row; the rows the
+ * first worker had committed are then reported as already stored.
+ */
+@Slf4j
+@Component
+public class ImportUnitWorker {
+
+    private static final String CLAIMABLE = """
+            SELECT u.id, u.import_id, u.first_row, u.status, u.attempts, d.engine
+            FROM import_units u JOIN distributed_imports d ON d.id = u.import_id
+            WHERE (u.status = 'QUEUED' OR (u.status = 'RUNNING' AND u.heartbeat_at < ?)) AND d.cancelled = FALSE
+            ORDER BY d.created_at, u.unit_no
+            """;
+
+    private static final String CLAIMABLE_LOCKED = CLAIMABLE + "LIMIT 1 FOR UPDATE OF u SKIP LOCKED";
+
+    // Without SKIP LOCKED the candidates are not locked: a claim only succeeds if no other worker claimed it first
+    private static final String CLAIMABLE_CANDIDATES = CLAIMABLE + "LIMIT 8";
+
+    private static final String CLAIM = """
+            UPDATE import_units
+            SET status = 'RUNNING', claimed_by = ?, attempts = attempts + 1, started_at = COALESCE(started_at, ?),
+                heartbeat_at = ?, processed_rows = 0, chunks = 0, saved = 0, duplicates = 0, invalid = 0, failed = 0
+            WHERE id = ? AND status = ? AND attempts = ?""";
+
+    private static final String HEARTBEAT = """
+            UPDATE import_units
+            SET heartbeat_at = ?, processed_rows = ?, chunks = ?, saved = ?, duplicates = ?, invalid = ?, failed = ?
+            WHERE id = ? AND attempts = ?""";
+
+    private static final String FINISH = """
+            UPDATE import_units
+            SET status = ?, payload = NULL, heartbeat_at = ?, finished_at = ?, processed_rows = ?, chunks = ?,
+                saved = ?, duplicates = ?, invalid = ?, failed = ?, errors = ?, failed_chunks = ?, error = ?
+            WHERE id = ? AND attempts = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DealService dealService;
+    private final ImportAdmission importAdmission;
+    private final ImportProperties importProperties;
+    private final ImportProperties.Distributed properties;
+    @Getter
+    private final String workerId;
+    private final ScheduledExecutorService scheduler;
+    private final Map<UUID, RunningUnit> running = new ConcurrentHashMap<>();
+    private volatile Boolean skipLocked;
+
+    public ImportUnitWorker(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                            DealService dealService, ImportAdmission importAdmission,
+                            ImportProperties importProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dealService = dealService;
+        this.importAdmission = importAdmission;
+        this.importProperties = importProperties;
+        this.properties = importProperties.getDistributed();
+        // pid@host, plus a suffix telling apart the workers of instances sharing a host and pid, e.g. in tests
+        this.workerId = ManagementFactory.getRuntimeMXBean().getName() + "/"
+                + UUID.randomUUID().toString().substring(0, 8);
+        AtomicInteger counter = new AtomicInteger();
+        // One thread per worker, plus one for the heartbeats
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, properties.getWorkers()) + 1, runnable -> {
+            Thread thread = new Thread(runnable, "deal-import-unit-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long pollInterval = properties.getPollInterval().toMillis();
+        for (int i = 0; i < Math.max(1, properties.getWorkers()); i++) {
+            scheduler.scheduleWithFixedDelay(this::drain, 0, pollInterval, TimeUnit.MILLISECONDS);
+        }
+        long heartbeatInterval = Math.max(1, properties.getLease().toMillis() / 3);
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                heartbeat();
+            } catch (RuntimeException e) {
+                log.warn("Work unit heartbeat failed: {}", e.getMessage());
+            }
+        }, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+        log.info("Import unit worker {} started with {} workers", workerId, Math.max(1, properties.getWorkers()));
+    }
+
+    /**
+     * Claims the next waiting work unit and imports it; false when no unit is waiting.
+     */
+    public boolean runNext() {
+        Claim claim = claim();
+        if (claim == null) {
+            return false;
+        }
+        run(claim);
+        return true;
+    }
+
+    /**
+     * Records the progress of the units running here, so they keep their claim, and stops those whose import was
+     * cancelled or whose claim another worker took over.
+     */
+    void heartbeat() {
+        List<RunningUnit> units = List.copyOf(running.values());
+        if (units.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> beats = new ArrayList<>(units.size());
+        for (RunningUnit unit : units) {
+            ImportContext context = unit.context();
+            beats.add(new Object[]{now, context.getRows(), context.getChunks(), context.getSaved(),
+                    context.getDuplicates(), context.getInvalid(), context.getFailed(), unit.claim().id(),
+                    unit.claim().attempt()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(HEARTBEAT, beats);
+        for (int i = 0; i < units.size(); i++) {
+            RunningUnit unit = units.get(i);
+            if (updated[i] == 0) {
+                log.warn("Work unit {} was taken over by another worker, stopping it", unit.claim().id());
+                unit.context().cancel();
+            } else if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT cancelled FROM distributed_imports WHERE id = ?", Boolean.class, unit.claim().importId()))) {
+                unit.context().cancel();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!scheduler.isShutdown() && runNext()) {
+                // keeps claiming until no unit is waiting
+            }
+        } catch (RuntimeException e) {
+            log.error("Import unit worker {} failed", workerId, e);
+        }
+    }
+
+    private Claim claim() {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp expired = Timestamp.from(now.toInstant().minus(properties.getLease()));
+        String claimable = isSkipLockedSupported() ? CLAIMABLE_LOCKED : CLAIMABLE_CANDIDATES;
+        return transactionTemplate.execute(status -> {
+            while (true) {
+                List<Claim> candidates = jdbcTemplate.query(claimable, (rs, row) -> new Claim(
+                        rs.getObject("id", UUID.class),
+                        rs.getObject("import_id", UUID.class),
+                        rs.getLong("first_row"),
+                        rs.getString("status"),
+                        rs.getInt("attempts"),
+                        IngestEngine.valueOf(rs.getString("engine"))), expired);
+                if (candidates.isEmpty()) {
+                    return null;
+                }
+                for (Claim candidate : candidates) {
+                    if (jdbcTemplate.update(CLAIM, workerId, now, now, candidate.id(), candidate.status(),
+                            candidate.attempt()) == 1) {
+                        return candidate.claimed();
+                    }
+                }
+            }
+        });
+    }
+
+    private void run(Claim claim) {
+        byte[] payload = jdbcTemplate.queryForObject("SELECT payload FROM import_units WHERE id = ?", byte[].class,
+                claim.id());
+        ImportContext context = new ImportContext(claim.engine(), null,
+                importProperties.getReports().getInlineErrors(), dealService.newAppearedIds());
+        context.workUnit(claim.firstRow());
+        log.info("Worker {} importing work unit {} from row {}", workerId, claim.id(), claim.firstRow());
+
+        ImportJobStatus status;
+        String error = null;
+        running.put(claim.id(), new RunningUnit(claim, context));
+        try (ImportAdmission.Permit permit = importAdmission.await(payload != null ? payload.length : 0)) {
+            if (payload == null) {
+                throw new ImportCancelledException("Work unit cancelled before it started");
+            }
+            context.admitted(permit);
+            dealService.importCsv(new ByteArrayInputStream(payload), context);
+            status = ImportJobStatus.COMPLETED;
+        } catch (ImportCancelledException e) {
+            if (scheduler.isShutdown()) {
+                // Stopped by the shutdown of this instance: the unit is left to another worker once its lease expires
+                return;
+            }
+            status = ImportJobStatus.CANCELLED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            log.error("Work unit {} failed", claim.id(), e);
+            status = ImportJobStatus.FAILED;
+            error = e.getMessage();
+        } finally {
+            running.remove(claim.id());
+        }
+        finish(claim, context, status, error);
+    }
+
+    private void finish(Claim claim, ImportContext context, ImportJobStatus status, String error) {
+        Timestamp now = Timestamp.from(Instant.now());
+        if (error != null && error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        int updated = jdbcTemplate.update(FINISH, status.name(), now, now, context.getRows(), context.getChunks(),
+                context.getSaved(), context.getDuplicates(), context.getInvalid(), context.getFailed(),
+                DistributedImports.write(context.getErrors()), DistributedImports.write(context.getFailedChunks()),
+                error, claim.id(), claim.attempt());
+        if (updated == 0) {
+            log.warn("Work unit {} was taken over by another worker, dropping its outcome", claim.id());
+        }
+    }
+
+    private boolean isSkipLockedSupported() {
+        if (skipLocked == null) {
+            skipLocked = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return skipLocked;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdown();
+        running.values().forEach(unit -> unit.context().cancel());
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * A work unit as selected for claiming, or once claimed, with {@code attempt} the claim it is held under.
+     */
+    private record Claim(UUID id, UUID importId, long firstRow, String status, int attempt, IngestEngine engine) {
+
+        Claim claimed() {
+            return new Claim(id, importId, firstRow, ImportJobStatus.RUNNING.name(), attempt + 1, engine);
+        }
+    }
+
+    private record RunningUnit(Claim claim, ImportContext context) {
+    }
+}
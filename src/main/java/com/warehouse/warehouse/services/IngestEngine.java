@@ -0,0 +1,17 @@
+package com.warehouse.warehouse.services;
+
+/**
+ * How accepted deals are written to the database.
+ */
+public enum IngestEngine {
+
+    /**
+     * Batched JPA inserts after a bulk duplicate lookup.
+     */
+    JPA,
+
+    /**
+     * PostgreSQL COPY into an unlogged staging table, merged into {@code deals} with ON CONFLICT.
+     */
+    COPY
+}
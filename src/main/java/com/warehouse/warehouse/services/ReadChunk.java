@@ -0,0 +1,11 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.models.Deal;
+
+import java.util.List;
+
+/**
+ * A chunk of deals as read from the file, with the reader position right after its last row, or -1 when unknown.
+ */
+record ReadChunk(List<Deal> deals, long position) {
+}
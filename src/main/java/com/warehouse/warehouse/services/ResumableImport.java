@@ -0,0 +1,185 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.models.ImportCheckpoint;
+import com.warehouse.warehouse.utils.DealIdSet;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+
+/**
+ * One run of a resumable import: its checkpoint, the spill file of the dealIds seen so far in the file and where
+ * the bytes read sit in the original file.
+ * <p>
+ * The spill file lets a resumed run rebuild the in-file duplicate check without reading the rows before the
+ * checkpoint again. It holds each dealId as its UTF-8 length then its bytes, since a quoted dealId may contain line
+ * breaks; it only ever grows by whole records and is cut back to the length recorded in the checkpoint.
+ */
+@Getter
+class ResumableImport implements Closeable {
+
+    private final String key;
+    private final ImportCheckpoint checkpoint;
+    private final boolean resumed;
+    private final Path idsPath;
+    // Connection holding the lock of the key across instances, null without one
+    private final Connection lock;
+    private long idsBytes;
+    private long base;
+    private int prefix;
+    private FileChannel channel;
+    private DataOutputStream ids;
+
+    ResumableImport(String key, ImportCheckpoint checkpoint, boolean resumed, Path idsPath, Connection lock) {
+        this.key = key;
+        this.checkpoint = checkpoint;
+        this.resumed = resumed;
+        this.idsPath = idsPath;
+        this.lock = lock;
+        this.idsBytes = checkpoint.getIdsBytes();
+    }
+
+    boolean isCompleted() {
+        return checkpoint.isCompleted();
+    }
+
+    /**
+     * Reads the dealIds seen before the checkpoint back into {@code appeared}.
+     */
+    DealIdSet loadAppearedIds(DealIdSet appeared) {
+        if (idsBytes == 0) {
+            return appeared;
+        }
+        try {
+            if (!Files.isRegularFile(idsPath) || Files.size(idsPath) < idsBytes) {
+                throw new IllegalArgumentException("Import " + key + " lost the dealIds seen before its checkpoint,"
+                        + " import the file again under a new key");
+            }
+            try (FileChannel file = FileChannel.open(idsPath, StandardOpenOption.WRITE)) {
+                file.truncate(idsBytes);
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(idsPath)))) {
+                for (long read = 0; read < idsBytes; ) {
+                    int length = in.readInt();
+                    appeared.add(new String(in.readNBytes(length), StandardCharsets.UTF_8));
+                    read += Integer.BYTES + length;
+                }
+            }
+            return appeared;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read dealIds of import " + key, e);
+        }
+    }
+
+    /**
+     * Positions {@code upload} on the first row after the checkpoint. {@code uploadOffset} is where the upload
+     * starts in the file: 0 when the whole file is sent again, or at most the checkpoint offset when only the rest is.
+     */
+    InputStream seek(InputStream upload, long uploadOffset) throws IOException {
+        long offset = checkpoint.getByteOffset();
+        if (uploadOffset < 0 || uploadOffset > offset) {
+            throw new IllegalArgumentException("Upload starts at byte " + uploadOffset + " but import " + key
+                    + " can only resume from byte " + offset);
+        }
+        try {
+            upload.skipNBytes(offset - uploadOffset);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Upload ends before the checkpoint of import " + key + " at byte " + offset);
+        }
+        if (!resumed) {
+            return upload;
+        }
+
+        byte[] header = checkpoint.getHeader().getBytes(StandardCharsets.UTF_8);
+        base = offset;
+        prefix = header.length;
+        return new SequenceInputStream(new ByteArrayInputStream(header), upload);
+    }
+
+    /**
+     * Records the header of a new import so a resumed run can replay it.
+     */
+    void header(byte[] header) {
+        if (!resumed) {
+            checkpoint.setHeader(new String(header, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Maps a position of the decoder onto the original file.
+     */
+    long fileOffset(long position) {
+        return base + position - prefix;
+    }
+
+    void appeared(String dealId) {
+        try {
+            if (ids == null) {
+                Files.createDirectories(idsPath.getParent());
+                channel = FileChannel.open(idsPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                channel.truncate(idsBytes);
+                channel.position(idsBytes);
+                ids = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            }
+            byte[] bytes = dealId.getBytes(StandardCharsets.UTF_8);
+            ids.writeInt(bytes.length);
+            ids.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write dealIds of import " + key, e);
+        }
+    }
+
+    /**
+     * Flushes the spill file and returns its length.
+     */
+    long flushIds() {
+        if (ids == null) {
+            return idsBytes;
+        }
+        try {
+            ids.flush();
+            idsBytes = channel.position();
+            return idsBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write dealIds of import " + key, e);
+        }
+    }
+
+    void deleteIds() {
+        close();
+        try {
+            Files.deleteIfExists(idsPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete dealIds of import " + key, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ids == null) {
+            return;
+        }
+        try {
+            ids.close();
+            ids = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write dealIds of import " + key, e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.warehouse.warehouse.services;
+
+import com.warehouse.warehouse.models.Deal;
+
+import java.util.List;
+
+/**
+ * A chunk of converted deals with the validation failure of each row, or null where the row is valid, and the
+ * reader position right after its last row.
+ */
+record ValidatedChunk(List<Deal> deals, String[] reasons, long position) {
+}
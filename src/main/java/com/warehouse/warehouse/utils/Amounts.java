@@ -0,0 +1,147 @@
+package com.warehouse.warehouse.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Deal amounts as {@code long} counts of minor units of their currency, e.g. cents for USD or yen for JPY. The scale
+ * of a currency is its ISO 4217 number of fraction digits; codes without one use {@value #DEFAULT_SCALE}.
+ */
+public final class Amounts {
+
+    /**
+     * Stands for an amount that cannot be stored in minor units: it has more fraction digits than its currency, or
+     * does not fit a {@code long}. Being negative, it never passes validation.
+     */
+    public static final long UNREPRESENTABLE = Long.MIN_VALUE;
+
+    public static final int DEFAULT_SCALE = 2;
+
+    private static final byte[] SCALES = new byte[CurrencyCsvReader.CODE_SPACE];
+    private static final long[] POWERS_OF_TEN = new long[19];
+    private static final Map<Integer, List<String>> OTHER_SCALES;
+
+    static {
+        Arrays.fill(SCALES, (byte) DEFAULT_SCALE);
+        Map<Integer, List<String>> otherScales = new TreeMap<>();
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            String code = currency.getCurrencyCode();
+            int index = CurrencyCsvReader.index(code.charAt(0), code.charAt(1), code.charAt(2));
+            int scale = currency.getDefaultFractionDigits();
+            if (index >= 0 && scale >= 0 && scale != DEFAULT_SCALE) {
+                SCALES[index] = (byte) scale;
+                otherScales.computeIfAbsent(scale, s -> new ArrayList<>()).add(code);
+            }
+        }
+        otherScales.values().forEach(Collections::sort);
+        OTHER_SCALES = Collections.unmodifiableMap(otherScales);
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private Amounts() {
+    }
+
+    /**
+     * Number of fraction digits of {@code currency}, case-insensitive.
+     */
+    public static int scale(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return DEFAULT_SCALE;
+        }
+        int index = CurrencyCsvReader.index(currency.charAt(0), currency.charAt(1), currency.charAt(2));
+        return index >= 0 ? SCALES[index] : DEFAULT_SCALE;
+    }
+
+    /**
+     * The currencies whose scale is not {@value #DEFAULT_SCALE}, by scale.
+     */
+    public static Map<Integer, List<String>> otherScales() {
+        return OTHER_SCALES;
+    }
+
+    /**
+     * Converts the decimal {@code unscaled × 10^-scale} to minor units of {@code currency}. Trailing zeros beyond the
+     * currency scale are dropped; any other digit there makes the amount {@link #UNREPRESENTABLE}.
+     */
+    public static long toMinorUnits(long unscaled, int scale, String currency) {
+        if (unscaled == UNREPRESENTABLE || unscaled == 0) {
+            return unscaled;
+        }
+        int shift = scale(currency) - scale;
+        if (shift >= 0) {
+            if (shift >= POWERS_OF_TEN.length) {
+                return UNREPRESENTABLE;
+            }
+            long power = POWERS_OF_TEN[shift];
+            return Math.abs(unscaled) <= Long.MAX_VALUE / power ? unscaled * power : UNREPRESENTABLE;
+        }
+        if (-shift >= POWERS_OF_TEN.length) {
+            return UNREPRESENTABLE;
+        }
+        long power = POWERS_OF_TEN[-shift];
+        return unscaled % power == 0 ? unscaled / power : UNREPRESENTABLE;
+    }
+
+    public static long toMinorUnits(BigDecimal amount, String currency) {
+        try {
+            return amount.movePointRight(scale(currency)).longValueExact();
+        } catch (ArithmeticException e) {
+            return UNREPRESENTABLE;
+        }
+    }
+
+    /**
+     * {@code amount} in minor units at {@code scale}, rounded with {@code rounding} and clamped to the range of a
+     * {@code long}; used to turn a decimal bound into one comparable with stored amounts.
+     */
+    public static long toBound(BigDecimal amount, int scale, RoundingMode rounding) {
+        BigDecimal minorUnits = amount.movePointRight(scale).setScale(0, rounding);
+        if (minorUnits.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+            return Long.MAX_VALUE;
+        }
+        if (minorUnits.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0) {
+            return Long.MIN_VALUE;
+        }
+        return minorUnits.longValue();
+    }
+
+    /**
+     * {@code minorUnits} of {@code currency} as a decimal in major units.
+     */
+    public static BigDecimal toDecimal(long minorUnits, String currency) {
+        return BigDecimal.valueOf(minorUnits, scale(currency));
+    }
+
+    /**
+     * Writes {@code minorUnits} as a plain decimal with {@code scale} fraction digits into the end of {@code out},
+     * which needs at least 21 chars, and returns the offset of its first char.
+     */
+    public static int format(long minorUnits, int scale, char[] out) {
+        int pos = out.length;
+        // Digits are taken off the negative value, which also covers Long.MIN_VALUE
+        long value = minorUnits < 0 ? minorUnits : -minorUnits;
+        int digits = 0;
+        do {
+            if (digits == scale && scale > 0) {
+                out[--pos] = '.';
+            }
+            out[--pos] = (char) ('0' - value % 10);
+            value /= 10;
+            digits++;
+        } while (value != 0 || digits <= scale);
+        if (minorUnits < 0) {
+            out[--pos] = '-';
+        }
+        return pos;
+    }
+}
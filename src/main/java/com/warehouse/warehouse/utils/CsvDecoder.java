@@ -0,0 +1,14 @@
+package com.warehouse.warehouse.utils;
+
+public enum CsvDecoder {
+
+    /**
+     * {@link DealCsvDecoder}, falling back to OpenCSV when the header is not a plain comma-separated header.
+     */
+    FAST,
+
+    /**
+     * Always use the OpenCSV bean reader.
+     */
+    OPENCSV
+}
@@ -1,44 +1,149 @@
 package com.warehouse.warehouse.utils;
 
+import com.warehouse.warehouse.config.CurrencyProperties;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Currency;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
+/**
+ * Whitelist of accepted currency codes, held as a bitset indexed by the three letters of the code (26³ entries).
+ * A lookup is an index computation and one array load, with no allocation and no exception for unknown codes.
+ * <p>
+ * The same index is the currency id stored in the smallint currency columns: it fits 15 bits, never changes, and
+ * maps back to its code through {@link #code(int)} without reading the {@code currencies} table.
+ */
+@Slf4j
 @Component
 public class CurrencyCsvReader {
 
-    private static final Set<String> VALID_CURRENCY_CODES = new HashSet<>();
+    public static final int CODE_SPACE = 26 * 26 * 26;
 
-    static {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(
-                        CurrencyCsvReader.class.getClassLoader().getResourceAsStream("valid-currencies.txt")))) {
+    private static final String[] CODES = new String[CODE_SPACE];
 
+    private final long[] validCodes = new long[(CODE_SPACE + 63) / 64];
+
+    public CurrencyCsvReader(CurrencyProperties properties) {
+        if (properties.getSource() == CurrencyProperties.Source.FILE) {
+            loadFile(properties.getFile());
+        } else {
+            Currency.getAvailableCurrencies().forEach(currency -> add(currency.getCurrencyCode()));
+        }
+        log.info("Loaded {} valid currency codes from {}", count(), properties.getSource());
+    }
+
+    public boolean isValid(String currencyCode) {
+        return isValid((CharSequence) currencyCode);
+    }
+
+    /**
+     * Case-insensitive lookup straight from the characters of {@code currencyCode}.
+     */
+    public boolean isValid(CharSequence currencyCode) {
+        int index = index(currencyCode);
+        return index >= 0 && (validCodes[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * The accepted codes, in code order.
+     */
+    public List<String> codes() {
+        List<String> codes = new ArrayList<>(count());
+        for (int index = 0; index < CODE_SPACE; index++) {
+            if ((validCodes[index >>> 6] & (1L << index)) != 0) {
+                codes.add(code(index));
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * The id stored for {@code currencyCode} in the smallint currency columns; -1, which matches no row, when it is
+     * not three ASCII letters.
+     */
+    public static short id(CharSequence currencyCode) {
+        return (short) index(currencyCode);
+    }
+
+    /**
+     * Position of {@code currencyCode} in the code space, ignoring case, or -1 when it is not three ASCII letters.
+     */
+    public static int index(CharSequence currencyCode) {
+        if (currencyCode == null || currencyCode.length() != 3) {
+            return -1;
+        }
+        return index(currencyCode.charAt(0), currencyCode.charAt(1), currencyCode.charAt(2));
+    }
+
+    /**
+     * Position of a three-letter code in the 26³ code space, ignoring case, or -1 when it is not made of ASCII letters.
+     */
+    public static int index(int c0, int c1, int c2) {
+        int l0 = (c0 | 0x20) - 'a';
+        int l1 = (c1 | 0x20) - 'a';
+        int l2 = (c2 | 0x20) - 'a';
+        if ((l0 | l1 | l2) < 0 || l0 >= 26 || l1 >= 26 || l2 >= 26) {
+            return -1;
+        }
+        return (l0 * 26 + l1) * 26 + l2;
+    }
+
+    /**
+     * The upper-case code at {@code index}, sharing one String instance per code.
+     */
+    public static String code(int index) {
+        String code = CODES[index];
+        if (code == null) {
+            code = new String(new char[]{
+                    (char) ('A' + index / 676), (char) ('A' + index / 26 % 26), (char) ('A' + index % 26)});
+            CODES[index] = code;
+        }
+        return code;
+    }
+
+    private void loadFile(String resource) {
+        InputStream in = CurrencyCsvReader.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Currency list " + resource + " not found on the classpath");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                VALID_CURRENCY_CODES.add(line.trim().toUpperCase());
+                String code = line.trim();
+                if (!code.isEmpty()) {
+                    add(code);
+                }
             }
-
         } catch (IOException e) {
             throw new RuntimeException("Failed to load valid currencies", e);
         }
     }
 
-
-    public boolean isValid(String currencyCode) {
-        if (currencyCode == null || currencyCode.length() != 3) {
-            return false;
+    private void add(String code) {
+        if (code.length() != 3) {
+            log.warn("Ignoring currency code '{}'", code);
+            return;
+        }
+        int index = index(code.charAt(0), code.charAt(1), code.charAt(2));
+        if (index < 0) {
+            log.warn("Ignoring currency code '{}'", code);
+            return;
         }
-        try {
-            Currency.getInstance(currencyCode.toUpperCase());
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
+        validCodes[index >>> 6] |= 1L << index;
+    }
+
+    private int count() {
+        int count = 0;
+        for (long word : validCodes) {
+            count += Long.bitCount(word);
         }
+        return count;
     }
 }
@@ -0,0 +1,455 @@
+package com.warehouse.warehouse.utils;
+
+import com.warehouse.warehouse.models.Deal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Reflection-free decoder for the five-column deal CSV schema.
+ * <p>
+ * The header is resolved once; rows are then decoded straight from a byte buffer into a reused {@link DealRow},
+ * parsing timestamps and amounts into primitives, amounts exactly as decimal digits and scale. Currency codes are
+ * returned as canonical upper-case strings, so the only per-row allocations are the ones the resulting {@link Deal}
+ * needs. Quoted fields are supported; any header that is not a plain comma-separated list of names is left to the
+ * OpenCSV reader.
+ */
+public class DealCsvDecoder implements DealReader {
+
+    private static final String[] COLUMNS = {"dealId", "fromCurrency", "toCurrency", "timestamp", "amount"};
+    private static final int DEAL_ID = 0;
+    private static final int FROM_CURRENCY = 1;
+    private static final int TO_CURRENCY = 2;
+    private static final int TIMESTAMP = 3;
+    private static final int AMOUNT = 4;
+    private static final int IGNORED = -1;
+
+    private static final int MAX_AMOUNT_DIGITS = 18;
+    private static final int[] NANO_SCALE = {1, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
+    private final InputStream in;
+    private final DealRow row = new DealRow();
+    private byte[] buf;
+    private byte[] scratch = new byte[64];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private long consumed;
+    private long rowNumber;
+    private int[] fieldColumns;
+    private byte[] header;
+
+    public DealCsvDecoder(InputStream in) {
+        this(in, 64 * 1024);
+    }
+
+    public DealCsvDecoder(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[bufferSize];
+    }
+
+    /**
+     * Reads and resolves the header. Returns false, without consuming anything, when the header is not one this
+     * decoder handles; the input can then be replayed through {@link #unreadInput()}.
+     */
+    public boolean readHeader() {
+        int end = recordEnd();
+        if (end < 0) {
+            return false;
+        }
+
+        int start = pos;
+        if (end - start >= 3 && buf[start] == (byte) 0xEF && buf[start + 1] == (byte) 0xBB && buf[start + 2] == (byte) 0xBF) {
+            start += 3;
+        }
+        int lineEnd = end > start && buf[end - 1] == '\r' ? end - 1 : end;
+
+        int[] columns = new int[16];
+        int fields = 0;
+        boolean[] found = new boolean[COLUMNS.length];
+        int fieldStart = start;
+        for (int i = start; i <= lineEnd; i++) {
+            if (i < lineEnd && buf[i] != ',') {
+                if (!isNameByte(buf[i])) {
+                    return false;
+                }
+                continue;
+            }
+            int column = column(fieldStart, i - fieldStart);
+            if (column != IGNORED) {
+                if (found[column]) {
+                    return false;
+                }
+                found[column] = true;
+            }
+            if (fields == columns.length) {
+                columns = Arrays.copyOf(columns, fields * 2);
+            }
+            columns[fields++] = column;
+            fieldStart = i + 1;
+        }
+
+        for (boolean present : found) {
+            if (!present) {
+                return false;
+            }
+        }
+
+        fieldColumns = Arrays.copyOf(columns, fields);
+        int headerStart = pos;
+        pos = Math.min(end + 1, limit);
+        header = Arrays.copyOfRange(buf, headerStart, pos);
+        return true;
+    }
+
+    /**
+     * The complete input of a decoder whose header was rejected, starting from its first byte.
+     */
+    public InputStream unreadInput() {
+        return new SequenceInputStream(new ByteArrayInputStream(buf, 0, limit), in);
+    }
+
+    /**
+     * The raw bytes of the header line, including its line break, once {@link #readHeader()} accepted it.
+     */
+    public byte[] header() {
+        return header;
+    }
+
+    /**
+     * Number of input bytes consumed so far, including the header; always at a row boundary.
+     */
+    @Override
+    public long position() {
+        return consumed + pos;
+    }
+
+    @Override
+    public Deal next() {
+        return read(row) ? Deal.fromRow(row) : null;
+    }
+
+    /**
+     * Decodes the next row into {@code target}. Returns false once the input is exhausted.
+     */
+    public boolean read(DealRow target) {
+        if (fieldColumns == null) {
+            throw new IllegalStateException("Header has not been read");
+        }
+
+        while (true) {
+            int end = recordEnd();
+            if (end < 0) {
+                return false;
+            }
+            int lineEnd = end > pos && buf[end - 1] == '\r' ? end - 1 : end;
+            if (lineEnd == pos) {
+                pos = Math.min(end + 1, limit);
+                continue;
+            }
+
+            rowNumber++;
+            decodeFields(pos, lineEnd, target);
+            pos = Math.min(end + 1, limit);
+            return true;
+        }
+    }
+
+    private void decodeFields(int start, int end, DealRow target) {
+        int field = 0;
+        int i = start;
+        while (true) {
+            if (field == fieldColumns.length) {
+                throw new IllegalArgumentException("Row " + rowNumber + " has more fields than the header");
+            }
+
+            int column = fieldColumns[field];
+            if (i < end && buf[i] == '"') {
+                int length = 0;
+                i++;
+                while (true) {
+                    if (i >= end) {
+                        throw new IllegalArgumentException("Unterminated quoted field at row " + rowNumber);
+                    }
+                    byte b = buf[i++];
+                    if (b == '"') {
+                        if (i < end && buf[i] == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (length == scratch.length) {
+                        scratch = Arrays.copyOf(scratch, length * 2);
+                    }
+                    scratch[length++] = b;
+                }
+                if (i < end && buf[i] != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field at row " + rowNumber);
+                }
+                assign(column, scratch, 0, length, target);
+            } else {
+                int fieldStart = i;
+                while (i < end && buf[i] != ',') {
+                    i++;
+                }
+                assign(column, buf, fieldStart, i - fieldStart, target);
+            }
+
+            field++;
+            if (i >= end) {
+                break;
+            }
+            i++;
+            if (i == end) {
+                assignEmpty(field);
+                field++;
+                break;
+            }
+        }
+
+        if (field != fieldColumns.length) {
+            throw new IllegalArgumentException("Row " + rowNumber + " has " + field + " fields, expected "
+                    + fieldColumns.length);
+        }
+    }
+
+    private void assignEmpty(int field) {
+        if (field < fieldColumns.length && fieldColumns[field] != IGNORED) {
+            throw emptyField(fieldColumns[field]);
+        }
+    }
+
+    private void assign(int column, byte[] bytes, int offset, int length, DealRow target) {
+        if (column == IGNORED) {
+            return;
+        }
+        if (length == 0) {
+            throw emptyField(column);
+        }
+
+        switch (column) {
+            case DEAL_ID -> target.dealId = new String(bytes, offset, length, StandardCharsets.UTF_8);
+            case FROM_CURRENCY -> target.fromCurrency = currency(bytes, offset, length);
+            case TO_CURRENCY -> target.toCurrency = currency(bytes, offset, length);
+            case TIMESTAMP -> {
+                if (!parseTimestamp(bytes, offset, length, target)) {
+                    target.timestamp(LocalDateTime.parse(new String(bytes, offset, length, StandardCharsets.UTF_8)));
+                }
+            }
+            case AMOUNT -> parseAmount(bytes, offset, length, target);
+            default -> throw new IllegalStateException("Unknown column " + column);
+        }
+    }
+
+    private IllegalArgumentException emptyField(int column) {
+        return new IllegalArgumentException("Field '" + COLUMNS[column] + "' is empty at row " + rowNumber);
+    }
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm:ss[.fraction]}; returns false for any other form so the caller can fall back
+     * to {@link LocalDateTime#parse}.
+     */
+    private static boolean parseTimestamp(byte[] b, int off, int len, DealRow target) {
+        if (len < 19 || b[off + 4] != '-' || b[off + 7] != '-' || b[off + 10] != 'T'
+                || b[off + 13] != ':' || b[off + 16] != ':') {
+            return false;
+        }
+
+        int year = digits(b, off, 4);
+        int month = digits(b, off + 5, 2);
+        int day = digits(b, off + 8, 2);
+        int hour = digits(b, off + 11, 2);
+        int minute = digits(b, off + 14, 2);
+        int second = digits(b, off + 17, 2);
+        int nano = 0;
+        if (len > 19) {
+            int fraction = len - 20;
+            if (b[off + 19] != '.' || fraction < 1 || fraction > 9) {
+                return false;
+            }
+            nano = digits(b, off + 20, fraction);
+            if (nano < 0) {
+                return false;
+            }
+            nano *= NANO_SCALE[fraction];
+        }
+        if ((year | month | day | hour | minute | second) < 0) {
+            return false;
+        }
+
+        target.year = year;
+        target.month = month;
+        target.day = day;
+        target.hour = hour;
+        target.minute = minute;
+        target.second = second;
+        target.nano = nano;
+        return true;
+    }
+
+    private static int digits(byte[] b, int off, int count) {
+        int value = 0;
+        for (int i = off; i < off + count; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a plain decimal into its digits and scale, exactly; exponents and amounts with more than 18 digits go
+     * through {@link BigDecimal}. Surrounding whitespace is skipped, as {@link String#trim} does for OpenCSV.
+     */
+    private static void parseAmount(byte[] b, int off, int len, DealRow target) {
+        int end = off + len;
+        while (off < end && (b[off] & 0xFF) <= ' ') {
+            off++;
+        }
+        while (end > off && (b[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        len = end - off;
+        int i = off;
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte c = b[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || digits == MAX_AMOUNT_DIGITS) {
+                parseDecimal(b, off, len, target);
+                return;
+            }
+            unscaled = unscaled * 10 + digit;
+            digits++;
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+
+        if (digits == 0) {
+            parseDecimal(b, off, len, target);
+            return;
+        }
+        target.amountUnscaled = negative ? -unscaled : unscaled;
+        target.amountScale = Math.max(fractionDigits, 0);
+    }
+
+    private static void parseDecimal(byte[] b, int off, int len, DealRow target) {
+        BigDecimal amount = new BigDecimal(new String(b, off, len, StandardCharsets.US_ASCII)).stripTrailingZeros();
+        if (amount.precision() > MAX_AMOUNT_DIGITS) {
+            target.amountUnscaled = Amounts.UNREPRESENTABLE;
+            target.amountScale = 0;
+            return;
+        }
+        target.amountUnscaled = amount.unscaledValue().longValue();
+        target.amountScale = amount.scale();
+    }
+
+    /**
+     * Returns the upper-cased currency code, sharing one String instance per three-letter code.
+     */
+    private static String currency(byte[] b, int off, int len) {
+        if (len == 3) {
+            int index = CurrencyCsvReader.index(b[off], b[off + 1], b[off + 2]);
+            if (index >= 0) {
+                return CurrencyCsvReader.code(index);
+            }
+        }
+        return new String(b, off, len, StandardCharsets.UTF_8).toUpperCase();
+    }
+
+    private int column(int offset, int length) {
+        for (int column = 0; column < COLUMNS.length; column++) {
+            String name = COLUMNS[column];
+            if (name.length() != length) {
+                continue;
+            }
+            boolean match = true;
+            for (int i = 0; i < length && match; i++) {
+                match = Character.toLowerCase((char) buf[offset + i]) == Character.toLowerCase(name.charAt(i));
+            }
+            if (match) {
+                return column;
+            }
+        }
+        return IGNORED;
+    }
+
+    private static boolean isNameByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+
+    /**
+     * Makes sure the record starting at {@code pos} is fully buffered and returns the index of its terminating
+     * newline, {@code limit} for a last record without one, or -1 when no input is left.
+     */
+    private int recordEnd() {
+        int scan = pos;
+        boolean quoted = false;
+        while (true) {
+            while (scan < limit) {
+                byte b = buf[scan];
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    return scan;
+                }
+                scan++;
+            }
+            if (eof) {
+                return scan > pos ? limit : -1;
+            }
+            scan -= fill();
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer, growing it when a record does not fit, and reads more
+     * input. Returns by how much buffer indexes shifted.
+     */
+    private int fill() {
+        int shift = pos;
+        if (shift > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= shift;
+            consumed += shift;
+            pos = 0;
+        } else if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+
+        try {
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return shift;
+    }
+}
@@ -0,0 +1,290 @@
+package com.warehouse.warehouse.utils;
+
+import com.warehouse.warehouse.config.ImportProperties;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Exact set of the dealIds seen in a file, compact enough for files of tens of millions of rows.
+ * <p>
+ * The UTF-8 bytes of every id are appended to an arena of 1 MB pages, indexed by an open-addressing table of longs.
+ * A slot packs the top 28 bits of the id's 64-bit hash with the arena offset of the id, so bytes are only compared
+ * when a probe hits a slot with the same 28 bits; for an id not in the set that happens about once in 2^28 probes.
+ * With a spill directory, pages past {@code heapArenaSize} are memory-mapped from a temporary file instead of being
+ * allocated on the heap.
+ * <p>
+ * Memory per 10M ids: the table is kept at most 3/4 full, so 16M slots of 8 bytes, 128 MB; the arena takes the id
+ * length plus 2 bytes per id, 120 MB for 10-byte ids. About 250 MB, of which 128 MB on the heap once the arena
+ * spills, where a {@code HashSet<String>} of the same ids takes about 1 GB of heap.
+ * <p>
+ * Thread-safe, so files imported together can share one set.
+ */
+public class DealIdSet implements Closeable {
+
+    private static final int PAGE_BITS = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int OFFSET_BITS = 36;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final int MAX_ID_BYTES = 0xFFFF;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private final Path spillDirectory;
+    private final long heapArenaBytes;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private long[] table;
+    private int size;
+    private ByteBuffer page;
+    private byte[] scratch = new byte[64];
+    private Path spillFile;
+    private FileChannel spill;
+    private long spillStart;
+    // Ids too long for an arena record; only reachable with rows no deals table column could hold
+    private Set<String> oversized;
+
+    /**
+     * A set held on the heap only.
+     */
+    public DealIdSet() {
+        this(null, Long.MAX_VALUE);
+    }
+
+    public DealIdSet(ImportProperties.InFileDedup properties) {
+        this(spillDirectory(properties.getSpillDirectory()), properties.getHeapArenaSize().toBytes());
+    }
+
+    /**
+     * @param spillDirectory where the arena pages past {@code heapArenaBytes} are mapped from, or null to keep them
+     *                       on the heap
+     */
+    public DealIdSet(Path spillDirectory, long heapArenaBytes) {
+        this.spillDirectory = spillDirectory;
+        this.heapArenaBytes = heapArenaBytes;
+    }
+
+    /**
+     * Adds {@code dealId}; returns false when it was already in the set.
+     */
+    public synchronized boolean add(String dealId) {
+        int length = encode(dealId);
+        if (length > MAX_ID_BYTES) {
+            if (oversized == null) {
+                oversized = new HashSet<>();
+            }
+            return oversized.add(dealId);
+        }
+        if (table == null) {
+            table = new long[INITIAL_CAPACITY];
+        }
+
+        long hash = hash(scratch, length);
+        long tag = hash >>> OFFSET_BITS;
+        int mask = table.length - 1;
+        int index = (int) hash & mask;
+        long slot;
+        while ((slot = table[index]) != 0) {
+            if (slot >>> OFFSET_BITS == tag && matches((slot & OFFSET_MASK) - 1, scratch, length)) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+
+        table[index] = tag << OFFSET_BITS | append(scratch, length) + 1;
+        if (++size > table.length / 4 * 3) {
+            grow();
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(String dealId) {
+        int length = encode(dealId);
+        if (length > MAX_ID_BYTES) {
+            return oversized != null && oversized.contains(dealId);
+        }
+        if (table == null) {
+            return false;
+        }
+
+        long hash = hash(scratch, length);
+        long tag = hash >>> OFFSET_BITS;
+        int mask = table.length - 1;
+        long slot;
+        for (int index = (int) hash & mask; (slot = table[index]) != 0; index = (index + 1) & mask) {
+            if (slot >>> OFFSET_BITS == tag && matches((slot & OFFSET_MASK) - 1, scratch, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return size + (oversized != null ? oversized.size() : 0);
+    }
+
+    /**
+     * Heap taken by the table and the arena pages that did not spill.
+     */
+    public synchronized long getHeapBytes() {
+        long bytes = table != null ? (long) table.length * Long.BYTES : 0;
+        for (ByteBuffer arenaPage : pages) {
+            if (!arenaPage.isDirect()) {
+                bytes += arenaPage.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Releases the table and the arena, deleting the spill file.
+     */
+    @Override
+    public synchronized void close() {
+        table = null;
+        size = 0;
+        pages.clear();
+        page = null;
+        oversized = null;
+        if (spill != null) {
+            try {
+                spill.close();
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete " + spillFile, e);
+            } finally {
+                spill = null;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+        byte[] id = new byte[64];
+        for (long slot : old) {
+            if (slot == 0) {
+                continue;
+            }
+            long offset = (slot & OFFSET_MASK) - 1;
+            ByteBuffer arenaPage = pages.get((int) (offset >>> PAGE_BITS));
+            int position = (int) (offset & (PAGE_SIZE - 1));
+            int length = arenaPage.getShort(position) & 0xFFFF;
+            if (id.length < length) {
+                id = new byte[length];
+            }
+            arenaPage.get(position + 2, id, 0, length);
+
+            int index = (int) hash(id, length) & mask;
+            while (table[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            table[index] = slot;
+        }
+    }
+
+    /**
+     * Appends an id record, its length on 2 bytes then its bytes, and returns its arena offset. Records never span
+     * two pages.
+     */
+    private long append(byte[] id, int length) {
+        if (page == null || page.remaining() < length + 2) {
+            page = newPage();
+            pages.add(page);
+        }
+        long offset = (long) (pages.size() - 1) << PAGE_BITS | page.position();
+        if (offset > OFFSET_MASK - 1) {
+            throw new IllegalStateException("More than 64 GB of dealIds in one import");
+        }
+        page.putShort((short) length);
+        page.put(id, 0, length);
+        return offset;
+    }
+
+    private ByteBuffer newPage() {
+        long start = (long) pages.size() << PAGE_BITS;
+        if (spillDirectory == null || start < heapArenaBytes) {
+            return ByteBuffer.allocate(PAGE_SIZE);
+        }
+        try {
+            if (spill == null) {
+                Files.createDirectories(spillDirectory);
+                spillFile = Files.createTempFile(spillDirectory, "deal-ids-", ".arena");
+                spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                spillStart = start;
+            }
+            return spill.map(FileChannel.MapMode.READ_WRITE, start - spillStart, PAGE_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill dealIds to " + spillDirectory, e);
+        }
+    }
+
+    private static Path spillDirectory(String directory) {
+        return directory == null || directory.isBlank() ? null : Path.of(directory);
+    }
+
+    private boolean matches(long offset, byte[] id, int length) {
+        ByteBuffer arenaPage = pages.get((int) (offset >>> PAGE_BITS));
+        int position = (int) (offset & (PAGE_SIZE - 1));
+        if ((arenaPage.getShort(position) & 0xFFFF) != length) {
+            return false;
+        }
+        position += 2;
+        for (int i = 0; i < length; i++) {
+            if (arenaPage.get(position + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the UTF-8 bytes of {@code dealId} to {@code scratch} and returns their count.
+     */
+    private int encode(String dealId) {
+        int length = dealId.length();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = dealId.charAt(i);
+            if (c >= 0x80) {
+                byte[] bytes = dealId.getBytes(StandardCharsets.UTF_8);
+                if (scratch.length < bytes.length) {
+                    scratch = new byte[bytes.length];
+                }
+                System.arraycopy(bytes, 0, scratch, 0, bytes.length);
+                return bytes.length;
+            }
+            scratch[i] = (byte) c;
+        }
+        return length;
+    }
+
+    /**
+     * FNV-1a over the bytes, then the MurmurHash3 finalizer so that both the low bits (slot position) and the high
+     * bits (tag) are well mixed.
+     */
+    private static long hash(byte[] bytes, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ (bytes[i] & 0xFF)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
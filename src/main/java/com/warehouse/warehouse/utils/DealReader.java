@@ -0,0 +1,21 @@
+package com.warehouse.warehouse.utils;
+
+import com.warehouse.warehouse.models.Deal;
+
+/**
+ * Source of deals decoded from an uploaded CSV file.
+ */
+public interface DealReader {
+
+    /**
+     * Returns the next deal of the file, or null once the input is exhausted.
+     */
+    Deal next();
+
+    /**
+     * Number of input bytes consumed so far, at a row boundary, or -1 when the reader cannot tell.
+     */
+    default long position() {
+        return -1;
+    }
+}
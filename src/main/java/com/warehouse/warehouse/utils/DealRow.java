@@ -0,0 +1,50 @@
+package com.warehouse.warehouse.utils;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mutable holder for one decoded CSV row, reused by {@link DealCsvDecoder} from row to row.
+ */
+@Getter
+public class DealRow {
+
+    String dealId;
+    String fromCurrency;
+    String toCurrency;
+    int year;
+    int month;
+    int day;
+    int hour;
+    int minute;
+    int second;
+    int nano;
+    /**
+     * The amount as written in the file is {@code amountUnscaled × 10^-amountScale}; {@code amountUnscaled} is
+     * {@link Amounts#UNREPRESENTABLE} when it has more than 18 significant digits.
+     */
+    long amountUnscaled;
+    int amountScale;
+
+    /**
+     * The amount in minor units of {@code fromCurrency}.
+     */
+    public long amount() {
+        return Amounts.toMinorUnits(amountUnscaled, amountScale, fromCurrency);
+    }
+
+    public LocalDateTime timestamp() {
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    void timestamp(LocalDateTime timestamp) {
+        year = timestamp.getYear();
+        month = timestamp.getMonthValue();
+        day = timestamp.getDayOfMonth();
+        hour = timestamp.getHour();
+        minute = timestamp.getMinute();
+        second = timestamp.getSecond();
+        nano = timestamp.getNano();
+    }
+}
@@ -0,0 +1,29 @@
+package com.warehouse.warehouse.utils;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+import com.warehouse.warehouse.Dto.DealsDto;
+import com.warehouse.warehouse.models.Deal;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * Annotation-driven OpenCSV reader, used for dialects the {@link DealCsvDecoder} does not handle.
+ */
+public class OpenCsvDealReader implements DealReader {
+
+    private final Iterator<DealsDto> rows;
+
+    public OpenCsvDealReader(Reader reader) {
+        this.rows = new CsvToBeanBuilder<DealsDto>(reader)
+                .withType(DealsDto.class)
+                .withIgnoreLeadingWhiteSpace(true)
+                .build()
+                .iterator();
+    }
+
+    @Override
+    public Deal next() {
+        return rows.hasNext() ? Deal.toEntity(rows.next()) : null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.warehouse.warehouse.validation;
 
 import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.utils.Amounts;
 import com.warehouse.warehouse.utils.CurrencyCsvReader;
 import io.micrometer.common.util.StringUtils;
 import lombok.RequiredArgsConstructor;
@@ -39,6 +40,11 @@ public class DealValidator {
             return "Invalid toCurrency code";
         }
 
+        if (deal.getAmount() == Amounts.UNREPRESENTABLE) {
+            log.warn("Validation failed: amount does not fit the minor units of {}", deal.getFromCurrency());
+            return "Amount has more decimals than its currency allows or is too large";
+        }
+
         if (isInvalidAmount(deal.getAmount())) {
             log.warn("Validation failed: amount is invalid. Value: '{}'", deal.getAmount());
             return "Amount must be a positive number";
@@ -49,7 +55,7 @@ public class DealValidator {
             return "Invalid or future timestamp";
         }
 
-        log.info("Deal passed validation: {}", deal.getDealId());
+        log.debug("Deal passed validation: {}", deal.getDealId());
         return null;
     }
 
@@ -58,15 +64,15 @@ public class DealValidator {
     }
 
     private boolean isValidCurrency(String currency) {
-        return StringUtils.isNotBlank(currency) && csvReader.isValid(currency);
+        return currency != null && currency.length() == 3 && csvReader.isValid(currency);
     }
 
     private boolean isInvalidTimestamp(LocalDateTime timestamp) {
         return timestamp == null || timestamp.isAfter(LocalDateTime.now());
     }
 
-    private boolean isInvalidAmount(Float amount) {
-        return amount == null || amount <= 0.0;
+    private boolean isInvalidAmount(long amount) {
+        return amount <= 0;
     }
 
 
@@ -0,0 +1,42 @@
+-- Tables and sequence the application relied on Hibernate to create until migrations were introduced. deals keeps
+-- its identity column here; V2 replaces the table with one whose ids come from deals_seq.
+
+CREATE SEQUENCE deals_seq START WITH 1 INCREMENT BY 50;
+
+-- Continues after the ids the identity column handed out. Hibernate takes the 50 ids up to each value it draws, so
+-- the first value drawn has to be max(id) + 50. An empty table keeps the sequence at its start.
+SELECT setval('deals_seq', max(id) + 50, false) FROM deals HAVING max(id) IS NOT NULL;
+
+CREATE TABLE deal_rollups (
+    from_currency varchar(3) NOT NULL,
+    to_currency varchar(3) NOT NULL,
+    bucket timestamp(6) NOT NULL,
+    deal_count bigint NOT NULL,
+    amount_sum float(53) NOT NULL,
+    amount_min float4 NOT NULL,
+    amount_max float4 NOT NULL,
+    PRIMARY KEY (from_currency, to_currency, bucket)
+);
+
+CREATE INDEX idx_deal_rollups_pair_bucket ON deal_rollups (from_currency, to_currency, bucket);
+
+CREATE TABLE import_checkpoints (
+    import_key varchar(128) NOT NULL PRIMARY KEY,
+    engine varchar(8) NOT NULL CHECK (engine IN ('JPA', 'COPY')),
+    report_id uuid NOT NULL,
+    "header" varchar(4096),
+    byte_offset bigint NOT NULL,
+    row_number bigint NOT NULL,
+    chunks integer NOT NULL,
+    saved integer NOT NULL,
+    duplicates integer NOT NULL,
+    invalid integer NOT NULL,
+    failed integer NOT NULL,
+    report_bytes bigint NOT NULL,
+    report_entries bigint NOT NULL,
+    ids_bytes bigint NOT NULL,
+    errors text,
+    failed_chunks text,
+    completed boolean NOT NULL,
+    updated_at timestamp(6) with time zone
+);
@@ -0,0 +1,11 @@
+-- Schema as generated by Hibernate before migrations were introduced. Databases created back then are baselined at
+-- this version, so this script only runs on empty databases.
+
+CREATE TABLE deals (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    deal_id varchar(255) NOT NULL UNIQUE,
+    from_currency varchar(3) NOT NULL,
+    to_currency varchar(3) NOT NULL,
+    "timestamp" timestamp(6) NOT NULL,
+    amount float4 NOT NULL
+);
@@ -0,0 +1,102 @@
+-- Range-partitions deals by month of "timestamp". Rows outside every monthly partition land in deals_default
+-- until create_deal_partition creates their month.
+--
+-- A unique index on a partitioned table has to include the partition key, so dealId uniqueness across partitions
+-- is kept by deal_ids instead: every insert claims its dealId there first, and deletes release it.
+
+ALTER TABLE deals RENAME TO deals_legacy;
+
+CREATE TABLE deals (
+    id bigint NOT NULL,
+    deal_id varchar(255) NOT NULL,
+    from_currency varchar(3) NOT NULL,
+    to_currency varchar(3) NOT NULL,
+    "timestamp" timestamp(6) NOT NULL,
+    amount float4 NOT NULL
+) PARTITION BY RANGE ("timestamp");
+
+CREATE TABLE deals_default PARTITION OF deals DEFAULT;
+
+-- Creates the partition deals_pYYYYMM of the month containing month, moving in the rows deals_default already
+-- holds for it. Returns false when the partition already exists, attached or not.
+CREATE FUNCTION create_deal_partition(month date) RETURNS boolean AS $$
+DECLARE
+    from_ts timestamp := date_trunc('month', month);
+    to_ts timestamp := date_trunc('month', month) + interval '1 month';
+    partition_name text := 'deals_p' || to_char(month, 'YYYYMM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE deals INCLUDING DEFAULTS)', partition_name);
+    PERFORM set_config('deals.keep_deal_ids', 'on', true);
+    EXECUTE format('WITH moved AS (DELETE FROM deals_default WHERE "timestamp" >= $1 AND "timestamp" < $2 RETURNING *)'
+                   ' INSERT INTO %I SELECT * FROM moved', partition_name) USING from_ts, to_ts;
+    PERFORM set_config('deals.keep_deal_ids', 'off', true);
+    EXECUTE format('ALTER TABLE deals ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', partition_name, from_ts, to_ts);
+    RETURN true;
+END
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    month date;
+BEGIN
+    FOR month IN
+        SELECT DISTINCT date_trunc('month', "timestamp")::date FROM deals_legacy
+        UNION
+        SELECT (date_trunc('month', now()) + ahead * interval '1 month')::date FROM generate_series(0, 3) ahead
+    LOOP
+        PERFORM create_deal_partition(month);
+    END LOOP;
+END
+$$;
+
+INSERT INTO deals (id, deal_id, from_currency, to_currency, "timestamp", amount)
+SELECT id, deal_id, from_currency, to_currency, "timestamp", amount FROM deals_legacy;
+
+CREATE TABLE deal_ids (
+    deal_id varchar(255) NOT NULL PRIMARY KEY
+);
+
+INSERT INTO deal_ids (deal_id) SELECT deal_id FROM deals_legacy;
+
+DROP TABLE deals_legacy;
+
+ALTER TABLE deals ADD PRIMARY KEY (id, "timestamp");
+
+-- Range scans over time read a few BRIN pages per partition; the btree keeps keyset pages ordered by (timestamp, id)
+CREATE INDEX idx_deals_timestamp_brin ON deals USING brin ("timestamp");
+CREATE INDEX idx_deals_timestamp ON deals ("timestamp", id);
+CREATE INDEX idx_deals_pair_timestamp ON deals (from_currency, to_currency, "timestamp", id);
+CREATE INDEX idx_deals_deal_id ON deals (deal_id);
+
+-- Duplicates raise the unique violation the dealId constraint used to, unless the writer asked to skip them with
+-- SET LOCAL deals.skip_duplicate_deal_ids = 'on'
+CREATE FUNCTION claim_deal_id() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO deal_ids (deal_id) VALUES (NEW.deal_id) ON CONFLICT DO NOTHING;
+    IF FOUND THEN
+        RETURN NEW;
+    END IF;
+    IF current_setting('deals.skip_duplicate_deal_ids', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    RAISE unique_violation USING
+        MESSAGE = 'duplicate key value violates unique constraint "deal_ids_pkey"',
+        DETAIL = format('Key (deal_id)=(%s) already exists.', NEW.deal_id),
+        CONSTRAINT = 'deal_ids_pkey';
+END
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION release_deal_id() RETURNS trigger AS $$
+BEGIN
+    IF current_setting('deals.keep_deal_ids', true) IS DISTINCT FROM 'on' THEN
+        DELETE FROM deal_ids WHERE deal_id = OLD.deal_id;
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER deals_claim_deal_id BEFORE INSERT ON deals FOR EACH ROW EXECUTE FUNCTION claim_deal_id();
+CREATE TRIGGER deals_release_deal_id AFTER DELETE ON deals FOR EACH ROW EXECUTE FUNCTION release_deal_id();
@@ -0,0 +1,26 @@
+-- Amounts become exact bigint counts of minor units of from_currency, e.g. cents for USD and yen for JPY. Existing
+-- float amounts are rounded to the scale of their currency: its ISO 4217 fraction digits, 2 when it has none.
+
+-- Recreated by CopyDealWriter with the new column type
+DROP TABLE IF EXISTS deals_staging;
+
+ALTER TABLE deals ALTER COLUMN amount TYPE bigint USING round(amount::text::numeric * CASE
+    WHEN from_currency IN ('ADP', 'BEF', 'BIF', 'BYB', 'BYR', 'CLP', 'DJF', 'ESP', 'GNF', 'GRD', 'ISK', 'ITL', 'JPY',
+                           'KMF', 'KRW', 'LUF', 'MGF', 'PTE', 'PYG', 'ROL', 'RWF', 'TPE', 'TRL', 'UGX', 'UYI', 'VND',
+                           'VUV', 'XAF', 'XOF', 'XPF') THEN 1
+    WHEN from_currency IN ('BHD', 'IQD', 'JOD', 'KWD', 'LYD', 'OMR', 'TND') THEN 1000
+    WHEN from_currency IN ('CLF') THEN 10000
+    ELSE 100 END);
+
+-- The rollups summed floats; they are recomputed from the converted amounts
+TRUNCATE deal_rollups;
+
+ALTER TABLE deal_rollups
+    ALTER COLUMN amount_sum TYPE bigint,
+    ALTER COLUMN amount_min TYPE bigint,
+    ALTER COLUMN amount_max TYPE bigint;
+
+INSERT INTO deal_rollups (from_currency, to_currency, bucket, deal_count, amount_sum, amount_min, amount_max)
+SELECT from_currency, to_currency, date_trunc('hour', "timestamp"), count(*), sum(amount), min(amount), max(amount)
+FROM deals
+GROUP BY from_currency, to_currency, date_trunc('hour', "timestamp");
@@ -0,0 +1,44 @@
+-- Currency codes are stored as smallint ids: the position of the code among the 26^3 three-letter codes,
+-- (first - 'A') * 676 + (second - 'A') * 26 + (third - 'A'). Ids never change, so the application turns them back
+-- into codes in memory; currencies names them for SQL readers.
+
+CREATE FUNCTION currency_id(code text) RETURNS smallint AS $$
+    SELECT ((ascii(substr(upper(code), 1, 1)) - 65) * 676
+          + (ascii(substr(upper(code), 2, 1)) - 65) * 26
+          + (ascii(substr(upper(code), 3, 1)) - 65))::smallint
+$$ LANGUAGE sql IMMUTABLE STRICT;
+
+CREATE TABLE currencies (
+    id smallint PRIMARY KEY,
+    code varchar(3) NOT NULL UNIQUE
+);
+
+-- Seeded from valid-currencies.txt and the codes already stored; the application adds the other accepted codes
+INSERT INTO currencies (id, code)
+SELECT currency_id(code), code
+FROM (
+    SELECT unnest(ARRAY['USD', 'EUR', 'JPY', 'GBP', 'AUD', 'CAD', 'CHF', 'CNY', 'HKD', 'NZD', 'SEK', 'KRW', 'SGD',
+                        'NOK', 'MXN', 'INR', 'RUB', 'ZAR', 'TRY', 'BRL', 'TWD', 'DKK', 'PLN', 'THB', 'IDR', 'HUF',
+                        'CZK', 'ILS', 'CLP', 'PHP', 'AED', 'COP', 'SAR', 'MYR', 'RON'])
+    UNION SELECT upper(from_currency) FROM deals
+    UNION SELECT upper(to_currency) FROM deals
+) codes (code);
+
+-- Recreated by CopyDealWriter with the new column types
+DROP TABLE IF EXISTS deals_staging;
+
+ALTER TABLE deals
+    ALTER COLUMN from_currency TYPE smallint USING currency_id(from_currency),
+    ALTER COLUMN to_currency TYPE smallint USING currency_id(to_currency);
+
+-- Recomputed rather than converted, so codes stored in different cases end up in one rollup
+TRUNCATE deal_rollups;
+
+ALTER TABLE deal_rollups
+    ALTER COLUMN from_currency TYPE smallint USING currency_id(from_currency),
+    ALTER COLUMN to_currency TYPE smallint USING currency_id(to_currency);
+
+INSERT INTO deal_rollups (from_currency, to_currency, bucket, deal_count, amount_sum, amount_min, amount_max)
+SELECT from_currency, to_currency, date_trunc('hour', "timestamp"), count(*), sum(amount), min(amount), max(amount)
+FROM deals
+GROUP BY from_currency, to_currency, date_trunc('hour', "timestamp");
@@ -0,0 +1,38 @@
+-- Distributed imports: an upload split into work units that the workers of every instance claim with
+-- SELECT ... FOR UPDATE SKIP LOCKED
+
+CREATE TABLE distributed_imports (
+    id uuid NOT NULL PRIMARY KEY,
+    engine varchar(8) NOT NULL CHECK (engine IN ('JPA', 'COPY')),
+    file_name varchar(255),
+    units integer NOT NULL,
+    cancelled boolean NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL
+);
+
+CREATE TABLE import_units (
+    id uuid NOT NULL PRIMARY KEY,
+    import_id uuid NOT NULL REFERENCES distributed_imports (id) ON DELETE CASCADE,
+    unit_no integer NOT NULL,
+    first_row bigint NOT NULL,
+    row_count integer NOT NULL,
+    payload bytea,
+    status varchar(9) NOT NULL CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED', 'CANCELLED')),
+    claimed_by varchar(128),
+    attempts integer NOT NULL,
+    started_at timestamp(6) with time zone,
+    heartbeat_at timestamp(6) with time zone,
+    finished_at timestamp(6) with time zone,
+    processed_rows bigint NOT NULL,
+    chunks integer NOT NULL,
+    saved integer NOT NULL,
+    duplicates integer NOT NULL,
+    invalid integer NOT NULL,
+    failed integer NOT NULL,
+    errors text,
+    failed_chunks text,
+    error varchar(1000),
+    CONSTRAINT uk_import_units_unit UNIQUE (import_id, unit_no)
+);
+
+CREATE INDEX idx_import_units_status ON import_units (status);
@@ -0,0 +1,231 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.CurrencyProperties;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportLimitExceededException;
+import com.warehouse.warehouse.services.ArchiveFormat;
+import com.warehouse.warehouse.services.ArchiveImportService;
+import com.warehouse.warehouse.services.CopyDealWriter;
+import com.warehouse.warehouse.services.DealIdFilter;
+import com.warehouse.warehouse.services.DealRollups;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.ImportAdmission;
+import com.warehouse.warehouse.services.ImportCheckpoints;
+import com.warehouse.warehouse.services.ImportContext;
+import com.warehouse.warehouse.services.ImportMetrics;
+import com.warehouse.warehouse.services.ImportPipeline;
+import com.warehouse.warehouse.services.ImportReports;
+import com.warehouse.warehouse.services.IngestEngine;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import com.warehouse.warehouse.utils.DealIdSet;
+import com.warehouse.warehouse.validation.DealValidator;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "deals.import.chunk-size=3",
+        "deals.import.archive.parallelism=3"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ArchiveImportService.class, DealService.class, CopyDealWriter.class, ImportPipeline.class,
+        ImportReports.class, ImportCheckpoints.class, DealRollups.class, DealIdFilter.class, ImportMetrics.class,
+        ImportAdmission.class, DealValidator.class, CurrencyCsvReader.class, ImportProperties.class,
+        CurrencyProperties.class})
+class ArchiveImportServiceTest {
+
+    private static final String HEADER = "dealId,fromCurrency,toCurrency,timestamp,amount\n";
+
+    @Autowired
+    private ArchiveImportService archiveImportService;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private ImportProperties importProperties;
+
+    @Autowired
+    private ImportAdmission importAdmission;
+
+    @AfterEach
+    void cleanup() {
+        dealRepository.deleteAll();
+        importProperties.getAdmission().setMaxRowsPerImport(0);
+    }
+
+    @Test
+    void importArchive_zipDeduplicatesAcrossEntries() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "bundle.zip", "application/zip", zip(entries()));
+
+        ResultDto result = archiveImportService.importArchive(file, ArchiveFormat.ZIP, null);
+
+        assertAcrossEntries(result);
+    }
+
+    @Test
+    void importArchive_tarGzDeduplicatesAcrossEntries() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "bundle.tar.gz", "application/gzip", tarGz(entries()));
+
+        ResultDto result = archiveImportService.importArchive(file, ArchiveFormat.TAR_GZ, null);
+
+        assertAcrossEntries(result);
+    }
+
+    @Test
+    void importArchive_reportsMalformedEntryWithoutFailingOthers() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("good.csv", HEADER + "G1,USD,EUR,2023-07-22T10:15:30,100.0\n");
+        entries.put("bad.csv", HEADER + "B1,USD,EUR,not-a-timestamp,100.0\n");
+        MockMultipartFile file = new MockMultipartFile("file", "bundle.zip", "application/zip", zip(entries));
+
+        ResultDto result = archiveImportService.importArchive(file, ArchiveFormat.ZIP, null);
+
+        assertEquals(1, result.getSaved());
+        assertEquals("good.csv", result.getEntries().get(0).getEntry());
+        assertNotNull(result.getEntries().get(1).getError());
+    }
+
+    @Test
+    void importArchive_countsRowsOfAllEntriesAgainstTheRowLimit() throws IOException {
+        importProperties.getAdmission().setMaxRowsPerImport(6);
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("a.csv", HEADER + rows("D1", "D2", "D3", "D4"));
+        entries.put("b.csv", HEADER + rows("D5", "D6", "D7", "D8"));
+        MockMultipartFile file = new MockMultipartFile("file", "bundle.zip", "application/zip", zip(entries));
+
+        assertThrows(ImportLimitExceededException.class,
+                () -> archiveImportService.importArchive(file, ArchiveFormat.ZIP, null));
+    }
+
+    @Test
+    void importArchive_failingEntryWaitsForTheOthersToStop() throws IOException {
+        DealService entries = mock(DealService.class);
+        when(entries.newAppearedIds()).thenAnswer(invocation -> new DealIdSet());
+        when(entries.newContext(any(), any())).thenAnswer(invocation -> new ImportContext(IngestEngine.JPA));
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicInteger finished = new AtomicInteger();
+        when(entries.importCsv(any(InputStream.class), any(ImportContext.class))).thenAnswer(invocation -> {
+            InputStream in = invocation.getArgument(0);
+            if (new String(in.readAllBytes(), StandardCharsets.UTF_8).contains("FAIL")) {
+                started.await(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("Entry failed");
+            }
+            started.countDown();
+            // A chunk being persisted does not stop when interrupted
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < until) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    // keep going
+                }
+            }
+            finished.incrementAndGet();
+            return ResultDto.builder().build();
+        });
+        ArchiveImportService service = new ArchiveImportService(entries, importAdmission, importProperties);
+        Map<String, String> archive = new LinkedHashMap<>();
+        archive.put("fail.csv", "FAIL");
+        archive.put("slow1.csv", HEADER);
+        archive.put("slow2.csv", HEADER);
+        MockMultipartFile file = new MockMultipartFile("file", "bundle.zip", "application/zip", zip(archive));
+
+        assertThrows(IllegalStateException.class, () -> service.importArchive(file, ArchiveFormat.ZIP, null));
+
+        assertEquals(2, finished.get());
+    }
+
+    @Test
+    void importArchive_rejectsArchiveWithoutCsv() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "bundle.zip", "application/zip",
+                zip(Map.of("readme.txt", "hello")));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> archiveImportService.importArchive(file, ArchiveFormat.ZIP, null));
+    }
+
+    private void assertAcrossEntries(ResultDto result) {
+        // 3 entries of 4 rows sharing D3 and D4; non-CSV and macOS metadata entries are skipped
+        assertEquals(3, result.getEntries().size());
+        assertEquals(8, result.getSaved());
+        assertEquals(4, result.getDuplicates());
+        assertEquals(0, result.getInvalid());
+        assertEquals(12, result.getEntries().stream().mapToInt(entry -> entry.getSaved() + entry.getDuplicates()).sum());
+        assertEquals(8, dealRepository.count());
+    }
+
+    private static Map<String, String> entries() {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("day1/a.csv", HEADER + rows("D1", "D2", "D3", "D4"));
+        entries.put("day1/b.csv", HEADER + rows("D3", "D4", "D5", "D6"));
+        entries.put("c.CSV", HEADER + rows("D7", "D8", "D3", "D4"));
+        entries.put("notes.txt", "not a deal file");
+        entries.put("__MACOSX/day1/._a.csv", "binary");
+        return entries;
+    }
+
+    private static String rows(String... dealIds) {
+        StringBuilder rows = new StringBuilder();
+        for (String dealId : dealIds) {
+            rows.append(dealId).append(",USD,EUR,2023-07-22T10:15:30,100.0\n");
+        }
+        return rows.toString();
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] tarGz(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(bytes))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                byte[] content = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                TarArchiveEntry tarEntry = new TarArchiveEntry(entry.getKey());
+                tarEntry.setSize(content.length);
+                tar.putArchiveEntry(tarEntry);
+                tar.write(content);
+                tar.closeArchiveEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
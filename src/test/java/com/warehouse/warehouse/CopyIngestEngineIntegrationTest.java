@@ -0,0 +1,73 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.ImportErrorCode;
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.IngestEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.mock.web.MockMultipartFile;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate"})
+@Testcontainers(disabledWithoutDocker = true)
+class CopyIngestEngineIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Test
+    void importCsv_withCopyEngine_shouldMergeAndCountDuplicates() throws IOException {
+        dealRepository.save(Deal.builder()
+                .dealId("D2")
+                .fromCurrency("USD")
+                .toCurrency("EUR")
+                .timestamp(LocalDateTime.now().minusDays(1))
+                .amount(10_000)
+                .build());
+
+        String csv = "dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D2,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D3,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D3,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "\"D,4\",GBP,JPY,2023-07-22T10:15:30,250.5\n";
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "deals.csv",
+                "text/csv",
+                csv.getBytes()
+        );
+
+        ResultDto result = dealService.importCsv(file, IngestEngine.COPY);
+
+        assertEquals(3, result.getSaved());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(0, result.getInvalid());
+        assertTrue(result.getErrors().stream().anyMatch(error -> error.getCode() == ImportErrorCode.ALREADY_STORED
+                && "D2".equals(error.getDealId())));
+        assertEquals(4, dealRepository.count());
+        assertTrue(dealRepository.existsByDealId("D,4"));
+    }
+}
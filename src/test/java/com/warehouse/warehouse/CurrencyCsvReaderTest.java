@@ -0,0 +1,49 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.config.CurrencyProperties;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CurrencyCsvReaderTest {
+
+    @Test
+    void isoSourceAcceptsKnownCodesIgnoringCase() {
+        CurrencyCsvReader reader = new CurrencyCsvReader(new CurrencyProperties());
+
+        assertTrue(reader.isValid("USD"));
+        assertTrue(reader.isValid("eur"));
+        assertTrue(reader.isValid(new StringBuilder("jPy")));
+        assertFalse(reader.isValid("ZZZ"));
+        assertFalse(reader.isValid("US"));
+        assertFalse(reader.isValid("USDX"));
+        assertFalse(reader.isValid("U$D"));
+        assertFalse(reader.isValid("   "));
+        assertFalse(reader.isValid((String) null));
+    }
+
+    @Test
+    void fileSourceOnlyAcceptsListedCodes() {
+        CurrencyProperties properties = new CurrencyProperties();
+        properties.setSource(CurrencyProperties.Source.FILE);
+        CurrencyCsvReader reader = new CurrencyCsvReader(properties);
+
+        assertTrue(reader.isValid("USD"));
+        assertTrue(reader.isValid("php"));
+        assertFalse(reader.isValid("XXX"));
+    }
+
+    @Test
+    void indexRoundTripsThroughCanonicalCode() {
+        int index = CurrencyCsvReader.index('u', 's', 'D');
+
+        assertEquals("USD", CurrencyCsvReader.code(index));
+        assertSame(CurrencyCsvReader.code(index), CurrencyCsvReader.code(index));
+        assertEquals(-1, CurrencyCsvReader.index('U', 'S', '1'));
+        assertEquals(-1, CurrencyCsvReader.index('U', 'S', '['));
+    }
+}
@@ -0,0 +1,150 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.utils.Amounts;
+import com.warehouse.warehouse.utils.DealCsvDecoder;
+import com.warehouse.warehouse.utils.DealRow;
+import com.warehouse.warehouse.utils.OpenCsvDealReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DealCsvDecoderTest {
+
+    @Test
+    void shouldDecodeRowsWithReorderedAndExtraColumns() {
+        String csv = "amount,dealId,comment,timestamp,toCurrency,fromCurrency\r\n" +
+                "100.5,D1,first,2023-07-22T10:15:30,eur,usd\r\n" +
+                "\r\n" +
+                "0.25,D2,,2023-07-22T10:15:30.123,JPY,GBP";
+
+        DealCsvDecoder decoder = decoder(csv, 8);
+        assertTrue(decoder.readHeader());
+
+        Deal first = decoder.next();
+        assertEquals("D1", first.getDealId());
+        assertEquals("USD", first.getFromCurrency());
+        assertEquals("EUR", first.getToCurrency());
+        assertEquals(LocalDateTime.of(2023, 7, 22, 10, 15, 30), first.getTimestamp());
+        assertEquals(10_050, first.getAmount());
+
+        Deal second = decoder.next();
+        assertEquals("D2", second.getDealId());
+        assertEquals(LocalDateTime.of(2023, 7, 22, 10, 15, 30, 123_000_000), second.getTimestamp());
+        assertEquals(25, second.getAmount());
+
+        assertNull(decoder.next());
+        assertEquals(csv.length(), decoder.position());
+    }
+
+    @Test
+    void shouldDecodeQuotedFields() {
+        String csv = "dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "\"D,\"\"1\"\"\nx\",USD,EUR,2023-07-22T10:15:30,\"100\"\n";
+
+        DealCsvDecoder decoder = decoder(csv, 16);
+        assertTrue(decoder.readHeader());
+
+        Deal deal = decoder.next();
+        assertEquals("D,\"1\"\nx", deal.getDealId());
+        assertEquals(10_000, deal.getAmount());
+    }
+
+    @Test
+    void shouldParseAmountsExactly() {
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        String[] amounts = new String[2000];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = switch (i % 4) {
+                case 0 -> Integer.toString(random.nextInt(100_000_000));
+                case 1 -> random.nextInt(1_000_000) + "." + random.nextInt(1000);
+                case 2 -> "-" + random.nextInt(100) + "." + String.format("%06d", random.nextInt(1_000_000));
+                default -> Double.toString(random.nextDouble() * 1e12);
+            };
+            csv.append("D").append(i).append(",USD,EUR,2023-07-22T10:15:30,").append(amounts[i]).append('\n');
+        }
+
+        DealCsvDecoder decoder = decoder(csv.toString(), 1024);
+        assertTrue(decoder.readHeader());
+        DealRow row = new DealRow();
+        for (String amount : amounts) {
+            assertTrue(decoder.read(row));
+            BigDecimal parsed = BigDecimal.valueOf(row.getAmountUnscaled(), row.getAmountScale());
+            assertEquals(0, new BigDecimal(amount).compareTo(parsed), amount);
+        }
+        assertFalse(decoder.read(row));
+    }
+
+    @Test
+    void shouldConvertAmountsToMinorUnitsOfFromCurrency() {
+        String csv = "dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,JPY,USD,2023-07-22T10:15:30,1500.00\n" +
+                "D2,KWD,USD,2023-07-22T10:15:30,1.5\n" +
+                "D3,USD,EUR,2023-07-22T10:15:30,1.5E+3\n" +
+                "D4,USD,EUR,2023-07-22T10:15:30,16777217.01\n" +
+                "D5,USD,EUR,2023-07-22T10:15:30,0.001\n" +
+                "D6,JPY,USD,2023-07-22T10:15:30,1.5\n" +
+                "D7,USD,EUR,2023-07-22T10:15:30,123456789012345678901\n";
+
+        DealCsvDecoder decoder = decoder(csv, 32);
+        assertTrue(decoder.readHeader());
+
+        assertEquals(1500, decoder.next().getAmount());
+        assertEquals(1500, decoder.next().getAmount());
+        assertEquals(150_000, decoder.next().getAmount());
+        assertEquals(1_677_721_701L, decoder.next().getAmount());
+        assertEquals(Amounts.UNREPRESENTABLE, decoder.next().getAmount());
+        assertEquals(Amounts.UNREPRESENTABLE, decoder.next().getAmount());
+        assertEquals(Amounts.UNREPRESENTABLE, decoder.next().getAmount());
+    }
+
+    @Test
+    void shouldParsePaddedAmountsLikeOpenCsv() {
+        String csv = "dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30, 100.0\n" +
+                "D2,USD,EUR,2023-07-22T10:15:30,100.0 \n" +
+                "D3,USD,EUR,2023-07-22T10:15:30,\t-1.5E+2 \n" +
+                "D4,USD,EUR,2023-07-22T10:15:30,\" 0.25\t\"\n";
+
+        DealCsvDecoder decoder = decoder(csv, 32);
+        assertTrue(decoder.readHeader());
+        OpenCsvDealReader openCsv = new OpenCsvDealReader(new StringReader(csv));
+        for (int i = 0; i < 4; i++) {
+            Deal expected = openCsv.next();
+            assertEquals(expected.getAmount(), decoder.next().getAmount(), expected.getDealId());
+        }
+        assertNull(decoder.next());
+        assertNull(openCsv.next());
+    }
+
+    @Test
+    void shouldRejectEmptyRequiredField() {
+        DealCsvDecoder decoder = decoder("dealId,fromCurrency,toCurrency,timestamp,amount\nD1,USD,,2023-07-22T10:15:30,1\n", 64);
+        assertTrue(decoder.readHeader());
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, decoder::next);
+        assertEquals("Field 'toCurrency' is empty at row 1", ex.getMessage());
+    }
+
+    @Test
+    void shouldLeaveUnsupportedHeaderToFallback() throws IOException {
+        String csv = "\"dealId\";\"fromCurrency\"\nD1;USD\n";
+
+        DealCsvDecoder decoder = decoder(csv, 4);
+        assertFalse(decoder.readHeader());
+        assertEquals(csv, new String(decoder.unreadInput().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    private DealCsvDecoder decoder(String csv, int bufferSize) {
+        return new DealCsvDecoder(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+}
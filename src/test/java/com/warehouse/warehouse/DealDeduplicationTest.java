@@ -0,0 +1,91 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.CurrencyProperties;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.services.CopyDealWriter;
+import com.warehouse.warehouse.services.DealIdFilter;
+import com.warehouse.warehouse.services.DealRollups;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.ImportAdmission;
+import com.warehouse.warehouse.services.ImportCheckpoints;
+import com.warehouse.warehouse.services.ImportMetrics;
+import com.warehouse.warehouse.services.ImportPipeline;
+import com.warehouse.warehouse.services.ImportReports;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import com.warehouse.warehouse.validation.DealValidator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "deals.import.chunk-size=5",
+        "deals.import.filter.enabled=false"
+})
+@Import({DealService.class, CopyDealWriter.class, ImportPipeline.class, ImportReports.class, ImportCheckpoints.class,
+        DealRollups.class, DealIdFilter.class, ImportMetrics.class, ImportAdmission.class, DealValidator.class,
+        CurrencyCsvReader.class, ImportProperties.class, CurrencyProperties.class})
+class DealDeduplicationTest {
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void importCsv_shouldIssueOneDuplicateLookupPerChunk() throws IOException {
+        dealRepository.saveAllAndFlush(List.of(deal("D2"), deal("D7")));
+
+        StringBuilder csv = new StringBuilder("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        for (int i = 1; i <= 12; i++) {
+            csv.append("D").append(i).append(",USD,EUR,2023-07-22T10:15:30,100.0\n");
+        }
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "deals.csv",
+                "text/csv",
+                csv.toString().getBytes()
+        );
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ResultDto result = dealService.importCsv(file);
+
+        assertEquals(10, result.getSaved());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(0, result.getInvalid());
+        // 12 rows in chunks of 5: one lookup per chunk instead of one per row
+        assertEquals(3, statistics.getQueryExecutionCount());
+        assertEquals(12, dealRepository.count());
+    }
+
+    private Deal deal(String dealId) {
+        return Deal.builder()
+                .dealId(dealId)
+                .fromCurrency("USD")
+                .toCurrency("EUR")
+                .timestamp(LocalDateTime.now().minusDays(1))
+                .amount(10_000)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.services.DealIdFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealIdFilterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ImportProperties importProperties;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:DealIdFilterTest;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE deals (id BIGINT PRIMARY KEY, deal_id VARCHAR(255))");
+        importProperties = new ImportProperties();
+        importProperties.getFilter().setExpectedDeals(10_000);
+        importProperties.getFilter().setWarmupRangeSize(700);
+        importProperties.getFilter().setWarmupThreads(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE deals");
+    }
+
+    @Test
+    void mightContainEveryDealUntilWarm() {
+        DealIdFilter filter = new DealIdFilter(importProperties, jdbcTemplate);
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain("D1"));
+    }
+
+    @Test
+    void warmUpScansStoredDealsWithoutFalseNegatives() {
+        insertDeals(1, 5_000);
+        DealIdFilter filter = new DealIdFilter(importProperties, jdbcTemplate);
+
+        filter.warmUp();
+
+        assertTrue(filter.isReady());
+        for (int i = 1; i <= 5_000; i++) {
+            assertTrue(filter.mightContain("D" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 5_001; i <= 15_000; i++) {
+            if (filter.mightContain("D" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void putAllAddsCommittedDeals() {
+        DealIdFilter filter = new DealIdFilter(importProperties, jdbcTemplate);
+        filter.warmUp();
+
+        assertFalse(filter.mightContain("NEW-1"));
+        filter.putAll(List.of("NEW-1"));
+
+        assertTrue(filter.mightContain("NEW-1"));
+        assertEquals(1, filter.getSize());
+    }
+
+    @Test
+    void snapshotRestoresFilterAndScansOnlyNewerDeals(@TempDir Path dir) {
+        Path snapshot = dir.resolve("deal-filter.bin");
+        importProperties.getFilter().setSnapshotFile(snapshot.toString());
+        insertDeals(1, 1_000);
+        DealIdFilter first = new DealIdFilter(importProperties, jdbcTemplate);
+        first.warmUp();
+        first.putAll(List.of("ONLY-IN-SNAPSHOT"));
+        first.saveSnapshot();
+        assertTrue(Files.exists(snapshot));
+
+        insertDeals(1_001, 1_500);
+        DealIdFilter restored = new DealIdFilter(importProperties, jdbcTemplate);
+        restored.warmUp();
+
+        assertTrue(restored.mightContain("ONLY-IN-SNAPSHOT"));
+        assertTrue(restored.mightContain("D1"));
+        assertTrue(restored.mightContain("D1500"));
+        assertEquals(first.getSize() + 500, restored.getSize());
+    }
+
+    @Test
+    void snapshotRescansDealsStoredByOthersAfterWarmUp(@TempDir Path dir) {
+        importProperties.getFilter().setSnapshotFile(dir.resolve("deal-filter.bin").toString());
+        insertDeals(1, 1_000);
+        DealIdFilter first = new DealIdFilter(importProperties, jdbcTemplate);
+        first.warmUp();
+        // Imported through another instance while this one was running
+        insertDeals(1_001, 1_200);
+        first.saveSnapshot();
+
+        DealIdFilter restored = new DealIdFilter(importProperties, jdbcTemplate);
+        restored.warmUp();
+
+        for (int i = 1_001; i <= 1_200; i++) {
+            assertTrue(restored.mightContain("D" + i));
+        }
+    }
+
+    private void insertDeals(int from, int to) {
+        for (int i = from; i <= to; i++) {
+            jdbcTemplate.update("INSERT INTO deals (id, deal_id) VALUES (?, ?)", i, "D" + i);
+        }
+    }
+}
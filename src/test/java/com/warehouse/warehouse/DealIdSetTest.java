@@ -0,0 +1,92 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.utils.DealIdSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealIdSetTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void detectsEveryRepeatedDealIdExactly() {
+        try (DealIdSet set = new DealIdSet()) {
+            for (int i = 0; i < 200_000; i++) {
+                assertTrue(set.add("D" + i));
+            }
+            for (int i = 0; i < 200_000; i += 7) {
+                assertFalse(set.add("D" + i));
+            }
+            for (int i = 200_000; i < 210_000; i++) {
+                assertFalse(set.contains("D" + i));
+            }
+
+            assertEquals(200_000, set.size());
+        }
+    }
+
+    @Test
+    void matchesHashSetOnIdsSharingPrefixesAndNonAsciiChars() {
+        Set<String> expected = new HashSet<>();
+        try (DealIdSet set = new DealIdSet()) {
+            for (int i = 0; i < 50_000; i++) {
+                String dealId = switch (i % 4) {
+                    case 0 -> "DEAL-" + (i % 9_000);
+                    case 1 -> "DEAL-" + (i % 9_000) + " ";
+                    case 2 -> "Geschäft-" + (i % 5_000);
+                    default -> "";
+                };
+                assertEquals(expected.add(dealId), set.add(dealId), dealId);
+            }
+
+            assertEquals(expected.size(), set.size());
+        }
+    }
+
+    @Test
+    void acceptsDealIdsLongerThanAnArenaRecord() {
+        String dealId = "D".repeat(70_000);
+        try (DealIdSet set = new DealIdSet()) {
+            assertTrue(set.add(dealId));
+            assertFalse(set.add(dealId));
+            assertTrue(set.add(dealId + "1"));
+            assertEquals(2, set.size());
+        }
+    }
+
+    @Test
+    void spillsArenaToMappedFileAndDeletesItOnClose() throws IOException {
+        DealIdSet set = new DealIdSet(spillDirectory, 1 << 20);
+        for (int i = 0; i < 300_000; i++) {
+            assertTrue(set.add("SPILLED-DEAL-" + i));
+        }
+        for (int i = 0; i < 300_000; i += 3) {
+            assertFalse(set.add("SPILLED-DEAL-" + i));
+        }
+        assertEquals(1, countFiles());
+        // Only the table of 2^19 slots and the first page of ids stay on the heap
+        assertEquals((1L << 19) * Long.BYTES + (1 << 20), set.getHeapBytes());
+
+        set.close();
+
+        assertEquals(0, countFiles());
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.count();
+        }
+    }
+}
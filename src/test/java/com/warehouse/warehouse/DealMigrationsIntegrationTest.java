@@ -0,0 +1,52 @@
+package com.warehouse.warehouse;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers(disabledWithoutDocker = true)
+class DealMigrationsIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    @Test
+    void migrate_upgradesDatabaseCreatedByHibernateBeforeMigrations() {
+        DataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // The schema ddl-auto: update created for the original entity
+        jdbcTemplate.execute("""
+                CREATE TABLE deals (amount float4 NOT NULL, id bigint GENERATED BY DEFAULT AS IDENTITY,
+                    "timestamp" timestamp(6) NOT NULL, from_currency varchar(3) NOT NULL,
+                    to_currency varchar(3) NOT NULL, deal_id varchar(255) NOT NULL UNIQUE, PRIMARY KEY (id))""");
+        jdbcTemplate.update("""
+                INSERT INTO deals (amount, "timestamp", from_currency, to_currency, deal_id)
+                SELECT 12.25, timestamp '2024-01-01' + g * interval '1 hour', 'USD', 'eur', 'L' || g
+                FROM generate_series(1, 120) g""");
+
+        Flyway.configure().
+                dataSource(dataSource).
+                locations("classpath:db/migration/postgresql").
+                baselineOnMigrate(true).
+                baselineVersion("1").
+                load().
+                migrate();
+
+        assertEquals(120, jdbcTemplate.queryForObject("SELECT count(*) FROM deals", Integer.class));
+        assertEquals(1225, jdbcTemplate.queryForObject("SELECT amount FROM deals WHERE deal_id = 'L7'", Long.class));
+        assertEquals(120, jdbcTemplate.queryForObject("SELECT sum(deal_count) FROM deal_rollups", Integer.class));
+        // Hibernate hands out the 50 ids up to the value it draws: none of them may be taken already
+        long drawn = jdbcTemplate.queryForObject("SELECT nextval('deals_seq')", Long.class);
+        assertTrue(drawn - 49 > 120, "deals_seq hands out taken ids from " + (drawn - 49));
+    }
+}
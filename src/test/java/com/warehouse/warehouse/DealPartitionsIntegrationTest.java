@@ -0,0 +1,122 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.PartitionProperties;
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.services.DealPartitions;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.IngestEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.Period;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate",
+        // The tests run maintenance themselves, at known points
+        "deals.partitions.enabled=false"})
+@Testcontainers(disabledWithoutDocker = true)
+class DealPartitionsIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void partitions_keepDealIdsUniqueAndDetachPastRetention() throws IOException {
+        dealRepository.save(deal("OLD", LocalDateTime.of(2019, 1, 15, 10, 0)));
+        assertEquals("deals_default", partitionOf("OLD"));
+
+        // Same dealId in another partition
+        assertThrows(DataIntegrityViolationException.class,
+                () -> dealRepository.save(deal("OLD", LocalDateTime.now())));
+        ResultDto result = dealService.importCsv(csvFile(
+                "OLD,USD,EUR,2024-03-01T10:15:30,100.0",
+                "NEW,USD,EUR,2024-03-01T10:15:30,100.0"), IngestEngine.COPY);
+        assertEquals(1, result.getSaved());
+        assertEquals(1, result.getDuplicates());
+
+        assertTrue(jdbcTemplate.queryForObject("SELECT create_deal_partition('2019-01-01')", Boolean.class));
+        assertEquals("deals_p201901", partitionOf("OLD"));
+        assertEquals(1, count("SELECT count(*) FROM deal_ids WHERE deal_id = 'OLD'"));
+
+        PartitionProperties properties = new PartitionProperties();
+        properties.setRetention(Period.ofYears(1));
+        properties.setDropDetached(true);
+        new DealPartitions(jdbcTemplate, properties, transactionManager).maintain();
+
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('deals_p201901')::text", String.class));
+        assertFalse(dealRepository.existsByDealId("OLD"));
+        assertEquals(0, count("SELECT count(*) FROM deal_ids WHERE deal_id = 'OLD'"));
+        dealRepository.save(deal("OLD", LocalDateTime.now()));
+        assertTrue(dealRepository.existsByDealId("NEW"));
+    }
+
+    @Test
+    void maintain_movesBackfilledRowsOutOfTheDefaultPartition() {
+        dealRepository.save(deal("BACKFILL-1", LocalDateTime.of(2021, 6, 3, 9, 0)));
+        dealRepository.save(deal("BACKFILL-2", LocalDateTime.of(2021, 6, 30, 23, 59)));
+        assertEquals("deals_default", partitionOf("BACKFILL-1"));
+
+        new DealPartitions(jdbcTemplate, new PartitionProperties(), transactionManager).maintain();
+
+        assertEquals("deals_p202106", partitionOf("BACKFILL-1"));
+        assertEquals("deals_p202106", partitionOf("BACKFILL-2"));
+        assertEquals(0, count("SELECT count(*) FROM deals_default"));
+    }
+
+    private String partitionOf(String dealId) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM deals WHERE deal_id = ?",
+                String.class, dealId);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    private static Deal deal(String dealId, LocalDateTime timestamp) {
+        return Deal.builder().
+                dealId(dealId).
+                fromCurrency("USD").
+                toCurrency("EUR").
+                timestamp(timestamp).
+                amount(10_000).
+                build();
+    }
+
+    private static MockMultipartFile csvFile(String... rows) {
+        String csv = "dealId,fromCurrency,toCurrency,timestamp,amount\n" + String.join("\n", rows) + "\n";
+        return new MockMultipartFile("file", "deals.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,154 @@
+package com.warehouse.warehouse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.warehouse.warehouse.Dto.DealDto;
+import com.warehouse.warehouse.Dto.DealPageDto;
+import com.warehouse.warehouse.Dto.DealQueryDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.QueryProperties;
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.services.DealQueryService;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DealQueryService.class, QueryProperties.class})
+class DealQueryServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2023, 7, 22, 10, 0);
+
+    @Autowired
+    private DealQueryService dealQueryService;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        // D2 and D3 share a timestamp, so paging has to break the tie on id
+        dealRepository.saveAll(List.of(
+                deal("D1", "USD", "EUR", T0, 1000),
+                deal("D2", "USD", "EUR", T0.plusMinutes(1), 2000),
+                deal("D3", "USD", "EUR", T0.plusMinutes(1), 3000),
+                deal("D4", "GBP", "EUR", T0.plusMinutes(2), 4000),
+                deal("D5", "USD", "EUR", T0.plusMinutes(3), 5000),
+                deal("D6", "JPY", "USD", T0.plusMinutes(4), 60),
+                deal("D7", "USD", "EUR", T0.plusMinutes(5), 7000)));
+    }
+
+    @AfterEach
+    void cleanup() {
+        dealRepository.deleteAll();
+    }
+
+    @Test
+    void page_walksEveryMatchingDealInOrder() {
+        DealQueryDto query = DealQueryDto.builder().fromCurrency("usd").toCurrency("EUR").build();
+        List<String> dealIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            DealPageDto page = dealQueryService.page(query, cursor, 2);
+            page.getDeals().stream().map(DealDto::getDealId).forEach(dealIds::add);
+            cursor = page.getNext();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of("D1", "D2", "D3", "D5", "D7"), dealIds);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void page_appliesTimestampAndAmountRanges() {
+        DealQueryDto query = DealQueryDto.builder().
+                from(T0.plusMinutes(1)).
+                to(T0.plusMinutes(4)).
+                minAmount(new BigDecimal("25")).
+                maxAmount(new BigDecimal("60")).
+                build();
+
+        DealPageDto page = dealQueryService.page(query, null, null);
+
+        assertEquals(List.of("D3", "D4", "D5", "D6"), page.getDeals().stream().map(DealDto::getDealId).toList());
+        assertEquals(new BigDecimal("30.00"), page.getDeals().get(0).getAmount());
+        assertEquals(new BigDecimal("60"), page.getDeals().get(3).getAmount());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void page_rejectsBadCursorAndSize() {
+        DealQueryDto query = new DealQueryDto();
+
+        assertThrows(IllegalArgumentException.class, () -> dealQueryService.page(query, "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> dealQueryService.page(query, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> dealQueryService.page(query, null, 100_000));
+    }
+
+    @Test
+    void stream_writesMatchingDealsAsNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        dealQueryService.stream(DealQueryDto.builder().toCurrency("EUR").minAmount(new BigDecimal("20")).build(), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals("D2", first.get("dealId").asText());
+        assertEquals("2023-07-22T10:01:00", first.get("timestamp").asText());
+        assertTrue(lines[0].contains("\"amount\":20.00"), lines[0]);
+        assertEquals("D7", new ObjectMapper().readTree(lines[4]).get("dealId").asText());
+    }
+
+    @Test
+    void page_storesCurrencyIdsButReturnsCodes() {
+        Map<String, Object> stored = jdbcTemplate.queryForMap(
+                "SELECT from_currency, to_currency FROM deals WHERE deal_id = 'D6'");
+        assertEquals(CurrencyCsvReader.id("JPY"), ((Number) stored.get("from_currency")).shortValue());
+        assertEquals(CurrencyCsvReader.id("USD"), ((Number) stored.get("to_currency")).shortValue());
+
+        DealPageDto page = dealQueryService.page(DealQueryDto.builder().fromCurrency("jpy").build(), null, null);
+
+        assertEquals(1, page.getDeals().size());
+        assertEquals("JPY", page.getDeals().get(0).getFromCurrency());
+        assertEquals("USD", page.getDeals().get(0).getToCurrency());
+        assertTrue(dealQueryService.page(DealQueryDto.builder().fromCurrency("X").build(), null, null).getDeals()
+                .isEmpty());
+    }
+
+    private static Deal deal(String dealId, String from, String to, LocalDateTime timestamp, long amount) {
+        return Deal.builder().
+                dealId(dealId).
+                fromCurrency(from).
+                toCurrency(to).
+                timestamp(timestamp).
+                amount(amount).
+                build();
+    }
+}
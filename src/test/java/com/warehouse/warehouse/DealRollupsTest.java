@@ -0,0 +1,121 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.DealRollupDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.CurrencyProperties;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.services.CopyDealWriter;
+import com.warehouse.warehouse.services.DealIdFilter;
+import com.warehouse.warehouse.services.DealRollups;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.ImportAdmission;
+import com.warehouse.warehouse.services.ImportCheckpoints;
+import com.warehouse.warehouse.services.ImportMetrics;
+import com.warehouse.warehouse.services.ImportPipeline;
+import com.warehouse.warehouse.services.ImportReports;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import com.warehouse.warehouse.validation.DealValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "deals.import.chunk-size=2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DealService.class, CopyDealWriter.class, ImportPipeline.class, ImportReports.class, ImportCheckpoints.class,
+        DealRollups.class, DealIdFilter.class, ImportMetrics.class, ImportAdmission.class, DealValidator.class,
+        CurrencyCsvReader.class, ImportProperties.class, CurrencyProperties.class})
+class DealRollupsTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2023, 7, 22, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2023, 7, 23, 0, 0);
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private DealRollups dealRollups;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanup() {
+        dealRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM deal_rollups");
+    }
+
+    @Test
+    void importCsv_addsSavedDealsToRollups() throws IOException {
+        dealService.importCsv(csvFile(
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0",
+                "D2,USD,EUR,2023-07-22T10:45:00,50.5",
+                "D1,USD,EUR,2023-07-22T10:50:00,999.0",
+                "D3,USD,EUR,2023-07-22T11:05:00,20.0",
+                "D4,GBP,EUR,2023-07-22T10:20:00,10.0",
+                "D5,USD,ABC,2023-07-22T10:20:00,10.0"));
+        dealService.importCsv(csvFile(
+                "D2,USD,EUR,2023-07-22T10:45:00,50.5",
+                "D6,USD,EUR,2023-07-22T10:59:59,200.0"));
+
+        List<DealRollupDto> rollups = dealRollups.find(null, null, FROM, TO);
+
+        assertEquals(3, rollups.size());
+        assertRollup(rollups.get(0), "GBP", "EUR", 10, 1, "10.00", "10.00", "10.00");
+        assertRollup(rollups.get(1), "USD", "EUR", 10, 3, "350.50", "50.50", "200.00");
+        assertRollup(rollups.get(2), "USD", "EUR", 11, 1, "20.00", "20.00", "20.00");
+        assertEquals(2, dealRollups.find("usd", "eur", FROM, TO).size());
+    }
+
+    @Test
+    void rebuild_recomputesRollupsFromDeals() throws IOException {
+        dealService.importCsv(csvFile(
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0",
+                "D2,USD,EUR,2023-07-22T10:45:00,50.5",
+                "D3,USD,EUR,2023-07-22T11:05:00,20.0"));
+        List<DealRollupDto> maintained = dealRollups.find(null, null, FROM, TO);
+
+        jdbcTemplate.update("DELETE FROM deal_rollups");
+        assertEquals(2, dealRollups.rebuild(null, null).getBuckets());
+        assertEquals(maintained, dealRollups.find(null, null, FROM, TO));
+
+        jdbcTemplate.update("UPDATE deal_rollups SET deal_count = 42");
+        assertEquals(1, dealRollups.rebuild(LocalDateTime.of(2023, 7, 22, 11, 30), LocalDateTime.of(2023, 7, 22, 11, 40))
+                .getBuckets());
+        List<DealRollupDto> partial = dealRollups.find(null, null, FROM, TO);
+        assertEquals(42, partial.get(0).getCount());
+        assertEquals(1, partial.get(1).getCount());
+    }
+
+    private static void assertRollup(DealRollupDto rollup, String from, String to, int hour, long count, String sum,
+                                     String min, String max) {
+        assertEquals(from, rollup.getFromCurrency());
+        assertEquals(to, rollup.getToCurrency());
+        assertEquals(LocalDateTime.of(2023, 7, 22, hour, 0), rollup.getBucket());
+        assertEquals(count, rollup.getCount());
+        assertEquals(new BigDecimal(sum), rollup.getSum());
+        assertEquals(new BigDecimal(min), rollup.getMin());
+        assertEquals(new BigDecimal(max), rollup.getMax());
+    }
+
+    private static MockMultipartFile csvFile(String... rows) {
+        String csv = "dealId,fromCurrency,toCurrency,timestamp,amount\n" + String.join("\n", rows) + "\n";
+        return new MockMultipartFile("file", "deals.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
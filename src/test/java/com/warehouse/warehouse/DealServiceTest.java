@@ -1,21 +1,48 @@
 package com.warehouse.warehouse;
 
 import com.warehouse.warehouse.Dto.DealsDto;
+import com.warehouse.warehouse.Dto.ImportErrorCode;
 import com.warehouse.warehouse.Dto.ResultDto;
 import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.ImportProperties;
 import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.services.CopyDealWriter;
+import com.warehouse.warehouse.services.DealIdFilter;
+import com.warehouse.warehouse.services.DealRollups;
 import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.ImportErrorReport;
+import com.warehouse.warehouse.services.ImportAdmission;
+import com.warehouse.warehouse.services.ImportCheckpoints;
+import com.warehouse.warehouse.services.ImportMetrics;
+import com.warehouse.warehouse.services.ImportPipeline;
+import com.warehouse.warehouse.services.ImportReports;
 import com.warehouse.warehouse.validation.DealValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -28,12 +55,43 @@ class DealServiceTest {
     @Mock
     private DealValidator validator;
 
+    @Mock
+    private CopyDealWriter copyDealWriter;
+
+    @Mock
+    private ImportPipeline importPipeline;
+
+    @Mock
+    private ImportReports importReports;
+
+    @Mock
+    private DealIdFilter dealIdFilter;
+
+    @Mock
+    private ImportMetrics importMetrics;
+
+    @Mock
+    private ImportCheckpoints importCheckpoints;
+
+    @Mock
+    private DealRollups dealRollups;
+
+    @Mock
+    private ImportAdmission importAdmission;
+
+    @Spy
+    private ImportProperties importProperties = new ImportProperties();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private DealService dealService;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        when(dealIdFilter.mightContain(anyString())).thenReturn(true);
     }
 
     @Test
@@ -49,14 +107,14 @@ class DealServiceTest {
         );
 
         when(validator.validate(any(Deal.class))).thenReturn(null);
-        when(dealRepository.existsByDealId("D1")).thenReturn(true);  // simulate duplicate
+        when(dealRepository.findExistingDealIds(anyCollection())).thenReturn(Set.of("D1"));  // simulate duplicate
 
         ResultDto result = dealService.importCsv(file);
 
         assertEquals(0, result.getSaved());
         assertEquals(1, result.getDuplicates());
         assertEquals(0, result.getInvalid());
-        assertTrue(result.getErrors().stream().anyMatch(msg -> msg.contains("Duplicate deal")));
+        assertTrue(result.getErrors().stream().anyMatch(error -> error.getCode() == ImportErrorCode.ALREADY_STORED));
     }
 
     @Test
@@ -110,22 +168,22 @@ class DealServiceTest {
         // Validator returns null (valid)
         when(validator.validate(any(Deal.class))).thenReturn(null);
 
-        // DealRepository says deal doesn't exist
-        when(dealRepository.existsByDealId("D1")).thenReturn(false);
 
-        // Capture saved Deal
-        ArgumentCaptor<Deal> captor = ArgumentCaptor.forClass(Deal.class);
+        // Capture saved Deals
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Deal>> captor = ArgumentCaptor.forClass(List.class);
 
         ResultDto result = dealService.importCsv(file);
 
-        // Verify save was called once with the right deal
-        verify(dealRepository, times(1)).save(captor.capture());
+        // Verify the chunk was saved once with the right deal
+        verify(dealRepository, times(1)).saveAll(captor.capture());
 
-        Deal savedDeal = captor.getValue();
+        assertEquals(1, captor.getValue().size());
+        Deal savedDeal = captor.getValue().get(0);
         assertEquals("D1", savedDeal.getDealId());
         assertEquals("USD", savedDeal.getFromCurrency());
         assertEquals("EUR", savedDeal.getToCurrency());
-        assertEquals(100.0f, savedDeal.getAmount());
+        assertEquals(10_000, savedDeal.getAmount());
 
         // Assert results counts
         assertEquals(1, result.getSaved());
@@ -148,14 +206,14 @@ class DealServiceTest {
         );
 
         when(validator.validate(any(Deal.class))).thenReturn(null);
-        when(dealRepository.existsByDealId("D1")).thenReturn(false);
 
         ResultDto result = dealService.importCsv(file);
 
         assertEquals(1, result.getSaved());
         assertEquals(1, result.getDuplicates());
         assertEquals(0, result.getInvalid());
-        assertTrue(result.getErrors().stream().anyMatch(msg -> msg.contains("Duplicate deal in file")));
+        assertTrue(result.getErrors().stream().anyMatch(error -> error.getCode() == ImportErrorCode.DUPLICATE_IN_FILE
+                && error.getRow() == 2));
     }
 
     @Test
@@ -178,7 +236,355 @@ class DealServiceTest {
         assertEquals(0, result.getSaved());
         assertEquals(0, result.getDuplicates());
         assertEquals(1, result.getInvalid());
-        assertTrue(result.getErrors().stream().anyMatch(msg -> msg.contains("Invalid deal")));
+        assertTrue(result.getErrors().stream().anyMatch(error -> error.getCode() == ImportErrorCode.INVALID_DEAL
+                && "Amount must be a positive number".equals(error.getMessage())));
     }
-}
 
+    @Test
+    void testImportCsv_processesRowsInChunks() throws IOException {
+        importProperties.setChunkSize(2);
+
+        String csv = "dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D2,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D3,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D4,USD,EUR,2023-07-22T10:15:30,100.0\n";
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "deals.csv",
+                "text/csv",
+                new ByteArrayInputStream(csv.getBytes())
+        );
+
+        when(validator.validate(any(Deal.class))).thenReturn(null);
+
+        ResultDto result = dealService.importCsv(file);
+
+        verify(dealRepository, times(3)).saveAll(anyList());
+        assertEquals(4, result.getSaved());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(0, result.getInvalid());
+    }
+
+    @Test
+    void testImportCsv_failedChunkDoesNotRollBackOthers() throws IOException {
+        importProperties.setChunkSize(2);
+
+        String csv = "dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D2,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D3,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D4,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D5,USD,EUR,2023-07-22T10:15:30,100.0\n";
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "deals.csv",
+                "text/csv",
+                new ByteArrayInputStream(csv.getBytes())
+        );
+
+        when(validator.validate(any(Deal.class))).thenReturn(null);
+        when(dealRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResultDto result = dealService.importCsv(file);
+
+        assertEquals(3, result.getSaved());
+        assertEquals(2, result.getFailed());
+        assertEquals(3, result.getChunks());
+        assertEquals(1, result.getFailedChunks().size());
+        assertEquals(3, result.getFailedChunks().get(0).getFirstRow());
+        assertEquals(4, result.getFailedChunks().get(0).getLastRow());
+    }
+
+    @Test
+    void testImportCsv_pipelineMatchesSequentialCounts() throws IOException {
+        importProperties.setChunkSize(7);
+        importProperties.getPipeline().setWorkers(4);
+        importProperties.getPipeline().setQueueCapacity(2);
+
+        StringBuilder csv = new StringBuilder("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        for (int i = 0; i < 500; i++) {
+            csv.append("D").append(i % 400).append(",USD,EUR,2023-07-22T10:15:30,100.0\n");
+        }
+
+        when(validator.validate(any(Deal.class))).thenAnswer(invocation -> {
+            Deal deal = invocation.getArgument(0);
+            return deal.getDealId().endsWith("7") ? "Amount must be a positive number" : null;
+        });
+        when(dealRepository.findExistingDealIds(anyCollection())).thenAnswer(invocation -> {
+            Set<String> existing = new java.util.HashSet<>();
+            for (Object dealId : (java.util.Collection<?>) invocation.getArgument(0)) {
+                if (((String) dealId).endsWith("3")) {
+                    existing.add((String) dealId);
+                }
+            }
+            return existing;
+        });
+
+        ResultDto sequential = dealService.importCsv(csvFile(csv.toString()));
+
+        importProperties.getPipeline().setEnabled(true);
+        DealService pipelined = new DealService(dealRepository, validator, importProperties, transactionTemplate,
+                copyDealWriter, new ImportPipeline(importProperties), importReports, dealIdFilter, importMetrics,
+                importCheckpoints, dealRollups, importAdmission);
+        ResultDto parallel = pipelined.importCsv(csvFile(csv.toString()));
+
+        assertEquals(320, sequential.getSaved());
+        assertEquals(140, sequential.getDuplicates());
+        assertEquals(40, sequential.getInvalid());
+        assertEquals(sequential.getSaved(), parallel.getSaved());
+        assertEquals(sequential.getDuplicates(), parallel.getDuplicates());
+        assertEquals(sequential.getInvalid(), parallel.getInvalid());
+        assertEquals(sequential.getErrors(), parallel.getErrors());
+    }
+
+    @Test
+    void testImportCsv_capsInlineErrorsAndStreamsAllToReport(@TempDir Path reportDir) throws IOException {
+        importProperties.getReports().setInlineErrors(2);
+        UUID reportId = UUID.randomUUID();
+        Path reportFile = reportDir.resolve(reportId + ".ndjson");
+        when(importReports.create()).thenReturn(new ImportErrorReport(reportId, reportFile));
+
+        StringBuilder csv = new StringBuilder("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("D1,USD,EUR,2023-07-22T10:15:30,100.0\n");
+        }
+        when(validator.validate(any(Deal.class))).thenReturn(null);
+
+        ResultDto result = dealService.importCsv(csvFile(csv.toString()));
+
+        assertEquals(1, result.getSaved());
+        assertEquals(4, result.getDuplicates());
+        assertEquals(2, result.getErrors().size());
+        assertTrue(result.isErrorsTruncated());
+        assertEquals("/csv/import/reports/" + reportId, result.getReportUrl());
+        List<String> lines = Files.readAllLines(reportFile);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(3).contains("\"row\":5"));
+        assertTrue(lines.get(3).contains("\"code\":\"DUPLICATE_IN_FILE\""));
+    }
+
+    @Test
+    void testImportCsv_noReportUrlWithoutErrors(@TempDir Path reportDir) throws IOException {
+        UUID reportId = UUID.randomUUID();
+        when(importReports.create()).thenReturn(new ImportErrorReport(reportId, reportDir.resolve(reportId + ".ndjson")));
+        when(validator.validate(any(Deal.class))).thenReturn(null);
+
+        ResultDto result = dealService.importCsv(csvFile("dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n"));
+
+        assertNull(result.getReportUrl());
+        assertFalse(result.isErrorsTruncated());
+        assertFalse(Files.exists(reportDir.resolve(reportId + ".ndjson")));
+    }
+
+    @Test
+    void testImportCsv_looksUpOnlyDealIdsTheFilterMightHold() throws IOException {
+        when(dealIdFilter.mightContain("D1")).thenReturn(false);
+        when(validator.validate(any(Deal.class))).thenReturn(null);
+        when(dealRepository.findExistingDealIds(anyCollection())).thenReturn(Set.of("D2"));
+
+        ResultDto result = dealService.importCsv(csvFile("dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D2,USD,EUR,2023-07-22T10:15:30,100.0\n"));
+
+        verify(dealRepository).findExistingDealIds(List.of("D2"));
+        verify(dealIdFilter).putAll(List.of("D1", "D2"));
+        assertEquals(1, result.getSaved());
+        assertEquals(1, result.getDuplicates());
+    }
+
+    @Test
+    void testImportCsv_retriesWithFullLookupWhenFilterMissesStoredDeal() throws IOException {
+        when(dealIdFilter.mightContain(anyString())).thenReturn(false);
+        when(validator.validate(any(Deal.class))).thenReturn(null);
+        when(dealRepository.findExistingDealIds(anyCollection())).thenReturn(Set.of("D1"));
+        when(dealRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResultDto result = dealService.importCsv(csvFile("dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D2,USD,EUR,2023-07-22T10:15:30,100.0\n"));
+
+        verify(dealRepository).findExistingDealIds(List.of("D1", "D2"));
+        assertEquals(1, result.getSaved());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(0, result.getFailed());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportCsv_recordsPhaseTimersAndRowCounters() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> registryProvider = mock(ObjectProvider.class);
+        when(registryProvider.getIfAvailable(any())).thenReturn(registry);
+        DealService instrumented = new DealService(dealRepository, validator, importProperties, transactionTemplate,
+                copyDealWriter, importPipeline, importReports, dealIdFilter, new ImportMetrics(registryProvider),
+                importCheckpoints, dealRollups, importAdmission);
+
+        when(validator.validate(any(Deal.class))).thenAnswer(invocation ->
+                "BAD".equals(((Deal) invocation.getArgument(0)).getDealId()) ? "Invalid fromCurrency code" : null);
+        when(dealRepository.findExistingDealIds(anyCollection())).thenReturn(Set.of("D2"));
+
+        instrumented.importCsv(csvFile("dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D2,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "BAD,USD,EUR,2023-07-22T10:15:30,100.0\n"));
+
+        for (String phase : List.of("parse", "validate", "dedup_lookup", "persist", "commit")) {
+            assertEquals(1, registry.get("deals.import.phase").tag("phase", phase).timer().count(), phase);
+        }
+        assertEquals(1, registry.get("deals.import.chunk").timer().count());
+        assertEquals(1, registry.get("deals.import.rows").tag("outcome", "saved").counter().count());
+        assertEquals(1, registry.get("deals.import.rows").tag("reason", "ALREADY_STORED").counter().count());
+        assertEquals(1, registry.get("deals.import.rows").tag("reason", "DUPLICATE_IN_FILE").counter().count());
+        assertEquals(1, registry.get("deals.import.rows").tag("reason", "Invalid fromCurrency code").counter().count());
+        assertEquals(4, registry.get("deals.import.rows.processed").functionCounter().count());
+        assertTrue(registry.get("deals.import.bytes.processed").functionCounter().count() > 0);
+    }
+
+    @Test
+    void testImportCsvStream_decodesGzipBody() throws IOException {
+        when(validator.validate(any(Deal.class))).thenReturn(null);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(("dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                    "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                    "D2,USD,EUR,2023-07-22T10:15:30,100.0\n").getBytes());
+        }
+
+        ResultDto result = dealService.importCsvStream(new ByteArrayInputStream(gzipped.toByteArray()),
+                "text/csv; charset=UTF-8", "gzip", "deals.csv", null);
+
+        assertEquals(2, result.getSaved());
+    }
+
+    @Test
+    void testImportCsvStream_appliesUploadChecks() {
+        IllegalArgumentException wrongType = assertThrows(IllegalArgumentException.class, () ->
+                dealService.importCsvStream(new ByteArrayInputStream("a".getBytes()), "application/json", null, null, null));
+        IllegalArgumentException wrongExtension = assertThrows(IllegalArgumentException.class, () ->
+                dealService.importCsvStream(new ByteArrayInputStream("a".getBytes()), "text/csv", null, "deals.txt", null));
+        IllegalArgumentException empty = assertThrows(IllegalArgumentException.class, () ->
+                dealService.importCsvStream(new ByteArrayInputStream(new byte[0]), "text/csv", null, null, null));
+        IllegalArgumentException encoding = assertThrows(IllegalArgumentException.class, () ->
+                dealService.importCsvStream(new ByteArrayInputStream("a".getBytes()), "text/csv", "br", null, null));
+
+        assertEquals("Invalid file type. Only CSV files are allowed", wrongType.getMessage());
+        assertEquals("Invalid file type. Only CSV files are allowed", wrongExtension.getMessage());
+        assertEquals("File is empty", empty.getMessage());
+        assertEquals("Unsupported Content-Encoding br", encoding.getMessage());
+    }
+
+    @Test
+    void validateCsv_checksRowsWithoutWritingThem() throws IOException {
+        // The configured decoder does not matter, validation always takes the fast one
+        importProperties.setDecoder(com.warehouse.warehouse.utils.CsvDecoder.OPENCSV);
+        importProperties.setChunkSize(2);
+        when(validator.validate(any(Deal.class))).thenAnswer(invocation ->
+                ((Deal) invocation.getArgument(0)).getDealId().equals("D3") ? "Invalid toCurrency code" : null);
+
+        ResultDto result = dealService.validateCsv(csvFile("dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D2,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D3,USD,ABC,2023-07-22T10:15:30,100.0\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,100.0\n" +
+                "D4,USD,EUR,2023-07-22T10:15:30,100.0\n"), null, null, 1);
+
+        assertEquals(3, result.getSaved());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getInvalid());
+        assertEquals(5, result.getCheckedRows());
+        assertNull(result.getStopReason());
+        assertTrue(result.getErrors().stream().anyMatch(error -> error.getCode() == ImportErrorCode.DUPLICATE_IN_FILE
+                && error.getRow() == 4));
+        verifyNoInteractions(dealRepository, copyDealWriter, dealRollups);
+    }
+
+    @Test
+    void validateCsv_stopsOnceErrorLimitIsReached() throws IOException {
+        importProperties.setChunkSize(4);
+        when(validator.validate(any(Deal.class))).thenReturn("Amount must be a positive number");
+        StringBuilder csv = new StringBuilder("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append("D").append(i).append(",USD,EUR,2023-07-22T10:15:30,-1\n");
+        }
+
+        ResultDto result = dealService.validateCsv(csvFile(csv.toString()), 3, null, 1);
+
+        assertEquals(3, result.getInvalid());
+        assertEquals(3, result.getCheckedRows());
+        assertEquals(1, result.getChunks());
+        assertEquals("Stopped after 3 rejected rows", result.getStopReason());
+    }
+
+    @Test
+    void validateCsv_samplesEveryKthRowAndStopsAtErrorShare() throws IOException {
+        importProperties.getValidation().setMinRowsForPercent(10);
+        when(validator.validate(any(Deal.class))).thenAnswer(invocation ->
+                Integer.parseInt(((Deal) invocation.getArgument(0)).getDealId().substring(1)) > 90
+                        ? "Amount must be a positive number" : null);
+        StringBuilder csv = new StringBuilder("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        for (int i = 1; i <= 300; i++) {
+            csv.append("D").append(i).append(",USD,EUR,2023-07-22T10:15:30,100.0\n");
+        }
+
+        ResultDto sampled = dealService.validateCsv(csvFile(csv.toString()), 0, null, 10);
+        // Rows 1, 11, ... 291
+        assertEquals(30, sampled.getCheckedRows());
+        assertEquals(9, sampled.getSaved());
+        assertEquals(21, sampled.getInvalid());
+        assertEquals(List.of(101L, 111L), sampled.getErrors().stream().skip(1).limit(2)
+                .map(error -> error.getRow()).toList());
+
+        ResultDto stopped = dealService.validateCsv(csvFile(csv.toString()), 0, 10.0, 10);
+        assertEquals(11, stopped.getCheckedRows());
+        assertEquals(2, stopped.getInvalid());
+        assertEquals("Stopped at 18.2% rejected rows after 11 rows", stopped.getStopReason());
+        assertThrows(IllegalArgumentException.class, () -> dealService.validateCsv(csvFile(csv.toString()),
+                null, null, 0));
+    }
+
+    @Test
+    void validateCsvStream_stopsBeforeTheBodyEnds() throws IOException {
+        when(validator.validate(any(Deal.class))).thenReturn("Amount must be a positive number");
+        int[] served = new int[1];
+        // A body of a million rows, of which only the first chunks are read
+        InputStream body = new InputStream() {
+            private byte[] line = "dealId,fromCurrency,toCurrency,timestamp,amount\n".getBytes();
+            private int offset;
+
+            @Override
+            public int read() {
+                if (offset == line.length) {
+                    if (++served[0] > 1_000_000) {
+                        return -1;
+                    }
+                    line = ("D" + served[0] + ",USD,EUR,2023-07-22T10:15:30,-1\n").getBytes();
+                    offset = 0;
+                }
+                return line[offset++];
+            }
+        };
+
+        ResultDto result = dealService.validateCsvStream(body, "text/csv", null, "deals.csv", 10, null, 1);
+
+        assertEquals(10, result.getInvalid());
+        assertEquals("Stopped after 10 rejected rows", result.getStopReason());
+        assertTrue(served[0] < 100_000);
+        assertThrows(IllegalArgumentException.class, () -> dealService.validateCsvStream(
+                new ByteArrayInputStream(new byte[0]), "text/csv", null, null, null, null, 1));
+    }
+
+    private MockMultipartFile csvFile(String csv) {
+        return new MockMultipartFile("file", "deals.csv", "text/csv", csv.getBytes());
+    }
+}
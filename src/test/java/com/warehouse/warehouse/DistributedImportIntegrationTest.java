@@ -0,0 +1,108 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.ImportJobDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.DistributedImports;
+import com.warehouse.warehouse.services.ImportAdmission;
+import com.warehouse.warehouse.services.ImportUnitWorker;
+import com.warehouse.warehouse.services.IngestEngine;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate",
+        "deals.import.chunk-size=50", "deals.import.distributed.unit-rows=200"})
+@Testcontainers(disabledWithoutDocker = true)
+class DistributedImportIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    @Autowired
+    private DistributedImports distributedImports;
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private ImportAdmission importAdmission;
+
+    @Autowired
+    private ImportProperties importProperties;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @ParameterizedTest
+    @EnumSource(IngestEngine.class)
+    void workersOfTwoInstances_claimEachUnitOnce(IngestEngine engine) throws Exception {
+        String prefix = engine.name();
+        StringBuilder csv = new StringBuilder("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        for (int i = 0; i < 2_000; i++) {
+            // Every dealId appears twice, 1000 rows apart, so in units imported at the same time
+            csv.append(prefix).append(i % 1_000).append(",USD,EUR,2023-07-22T10:15:30,100.0\n");
+        }
+        UUID id = distributedImports.submit(new MockMultipartFile("file", "deals.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8)), engine);
+
+        List<CompletableFuture<Integer>> workers = List.of(
+                CompletableFuture.supplyAsync(() -> drain(newWorker())),
+                CompletableFuture.supplyAsync(() -> drain(newWorker())),
+                CompletableFuture.supplyAsync(() -> drain(newWorker())),
+                CompletableFuture.supplyAsync(() -> drain(newWorker())));
+        int units = 0;
+        for (CompletableFuture<Integer> worker : workers) {
+            units += worker.get(60, TimeUnit.SECONDS);
+        }
+        assertEquals(10, units);
+
+        ImportJobDto status = distributedImports.get(id);
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(1_000, status.getResult().getSaved());
+        assertEquals(1_000, status.getResult().getDuplicates());
+        assertEquals(0, status.getResult().getFailed());
+        assertEquals(1_000, jdbcTemplate.queryForObject("SELECT count(*) FROM deals WHERE deal_id LIKE ?",
+                Integer.class, prefix + "%"));
+        assertEquals(List.of(1), jdbcTemplate.queryForList(
+                "SELECT DISTINCT attempts FROM import_units WHERE import_id = ?", Integer.class, id));
+    }
+
+    private ImportUnitWorker newWorker() {
+        return new ImportUnitWorker(jdbcTemplate, transactionTemplate, dealService, importAdmission,
+                importProperties);
+    }
+
+    private static int drain(ImportUnitWorker worker) {
+        int units = 0;
+        while (worker.runNext()) {
+            units++;
+        }
+        return units;
+    }
+}
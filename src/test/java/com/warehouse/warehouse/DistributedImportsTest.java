@@ -0,0 +1,177 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.ImportJobDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.CurrencyProperties;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.services.CopyDealWriter;
+import com.warehouse.warehouse.services.DealIdFilter;
+import com.warehouse.warehouse.services.DealRollups;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.DistributedImports;
+import com.warehouse.warehouse.services.ImportAdmission;
+import com.warehouse.warehouse.services.ImportCheckpoints;
+import com.warehouse.warehouse.services.ImportMetrics;
+import com.warehouse.warehouse.services.ImportPipeline;
+import com.warehouse.warehouse.services.ImportReports;
+import com.warehouse.warehouse.services.ImportUnitWorker;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import com.warehouse.warehouse.validation.DealValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {"deals.import.chunk-size=2", "deals.import.distributed.unit-rows=4"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DistributedImports.class, ImportUnitWorker.class, DealService.class, CopyDealWriter.class,
+        ImportPipeline.class, ImportReports.class, ImportCheckpoints.class, DealRollups.class, DealIdFilter.class,
+        ImportMetrics.class, ImportAdmission.class, DealValidator.class, CurrencyCsvReader.class,
+        ImportProperties.class, CurrencyProperties.class})
+class DistributedImportsTest {
+
+    private static final String HEADER = "dealId,fromCurrency,toCurrency,timestamp,amount\n";
+
+    @Autowired
+    private DistributedImports distributedImports;
+
+    @Autowired
+    private ImportUnitWorker worker;
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private ImportAdmission importAdmission;
+
+    @Autowired
+    private ImportProperties importProperties;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanup() {
+        dealRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM import_units");
+        jdbcTemplate.update("DELETE FROM distributed_imports");
+        jdbcTemplate.update("DELETE FROM deal_rollups");
+    }
+
+    @Test
+    void twoWorkers_importOneUploadTogether() throws Exception {
+        dealService.importCsv(csvFile(HEADER + "S1,USD,EUR,2023-07-22T10:15:30,100.0\n"));
+
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= 30; i++) {
+            csv.append("D").append(i).append(",USD,EUR,2023-07-22T10:15:30,").append(i).append(".0\n");
+        }
+        csv.append("S1,USD,EUR,2023-07-22T10:15:30,100.0\n");
+        csv.append("\"D5\",USD,EUR,2023-07-22T10:15:30,5.0\n");
+        csv.append("\n");
+        csv.append("D31,USD,ABC,2023-07-22T10:15:30,31.0");
+        UUID id = distributedImports.submit(csvFile(csv.toString()), null);
+
+        assertEquals("QUEUED", distributedImports.get(id).getStatus());
+        assertEquals(9, jdbcTemplate.queryForObject("SELECT units FROM distributed_imports WHERE id = ?",
+                Integer.class, id));
+
+        // A second instance sharing the database
+        ImportUnitWorker other = new ImportUnitWorker(jdbcTemplate, transactionTemplate, dealService,
+                importAdmission, importProperties);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> drain(worker));
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> drain(other));
+        assertEquals(9, first.get(30, TimeUnit.SECONDS) + second.get(30, TimeUnit.SECONDS));
+
+        ImportJobDto status = distributedImports.get(id);
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(33, status.getRowsProcessed());
+        assertEquals(30, status.getResult().getSaved());
+        assertEquals(2, status.getResult().getDuplicates());
+        assertEquals(1, status.getResult().getInvalid());
+        assertEquals(0, status.getResult().getFailed());
+        assertNull(status.getError());
+        // Rows are numbered across the whole file
+        assertEquals(33, status.getResult().getErrors().stream()
+                .filter(error -> error.getDealId().equals("D31")).findFirst().orElseThrow().getRow());
+        assertEquals(31, dealRepository.count());
+        // Every unit was claimed once, by one of the two workers
+        assertEquals(List.of(1), jdbcTemplate.queryForList("SELECT DISTINCT attempts FROM import_units",
+                Integer.class));
+        assertTrue(List.of(worker.getWorkerId(), other.getWorkerId()).containsAll(
+                jdbcTemplate.queryForList("SELECT DISTINCT claimed_by FROM import_units", String.class)));
+    }
+
+    @Test
+    void runNext_takesOverUnitsWhoseLeaseExpired() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= 8; i++) {
+            csv.append("D").append(i).append(",USD,EUR,2023-07-22T10:15:30,100.0\n");
+        }
+        UUID id = distributedImports.submit(csvFile(csv.toString()), null);
+        // The first unit is held by a worker of another instance
+        jdbcTemplate.update("""
+                UPDATE import_units SET status = 'RUNNING', claimed_by = 'gone', attempts = 1,
+                    started_at = CURRENT_TIMESTAMP, heartbeat_at = CURRENT_TIMESTAMP
+                WHERE unit_no = 0""");
+
+        assertTrue(worker.runNext());
+        assertFalse(worker.runNext());
+        assertEquals("RUNNING", distributedImports.get(id).getStatus());
+
+        // ... which stopped without finishing it
+        jdbcTemplate.update("UPDATE import_units SET heartbeat_at = DATEADD('MINUTE', -5, CURRENT_TIMESTAMP)");
+        assertTrue(worker.runNext());
+
+        ImportJobDto status = distributedImports.get(id);
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(8, status.getResult().getSaved());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT attempts FROM import_units WHERE unit_no = 0",
+                Integer.class));
+    }
+
+    @Test
+    void cancel_keepsQueuedUnitsFromStarting() throws IOException {
+        UUID id = distributedImports.submit(csvFile(HEADER + "D1,USD,EUR,2023-07-22T10:15:30,100.0\n"), null);
+
+        assertEquals("CANCELLED", distributedImports.cancel(id).getStatus());
+        assertFalse(worker.runNext());
+        assertEquals(0, dealRepository.count());
+    }
+
+    private static int drain(ImportUnitWorker worker) {
+        int units = 0;
+        while (worker.runNext()) {
+            units++;
+        }
+        return units;
+    }
+
+    private static MockMultipartFile csvFile(String csv) {
+        return new MockMultipartFile("file", "deals.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,145 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportRejectedException;
+import com.warehouse.warehouse.services.ImportAdmission;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImportAdmissionTest {
+
+    private MeterRegistry registry;
+    private final ImportProperties importProperties = new ImportProperties();
+    private ImportAdmission importAdmission;
+
+    @BeforeEach
+    void setup() {
+        ImportProperties.Admission admission = importProperties.getAdmission();
+        admission.setMaxConcurrent(1);
+        admission.setMaxQueued(1);
+        admission.setQueueTimeout(Duration.ofSeconds(5));
+        admission.setRetryAfter(Duration.ofSeconds(12));
+        importAdmission = newAdmission();
+    }
+
+    @Test
+    void admit_rejectsRightAwayWhenQueueIsFull() throws Exception {
+        ImportAdmission.Permit running = importAdmission.admit(1024);
+        CompletableFuture<ImportAdmission.Permit> waiting =
+                CompletableFuture.supplyAsync(() -> importAdmission.admit(1024));
+        awaitGauge("deals.import.admission.queued", 1);
+
+        ImportRejectedException rejected =
+                assertThrows(ImportRejectedException.class, () -> importAdmission.admit(1024));
+        assertEquals(Duration.ofSeconds(12), rejected.getRetryAfter());
+        assertEquals(1, registry.get("deals.import.admission.rejected").tag("reason", "queue_full").counter().count());
+
+        running.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, gauge("deals.import.admission.in.flight"));
+    }
+
+    @Test
+    void admit_rejectsWhenNoSlotFreesUpInTime() {
+        importProperties.getAdmission().setQueueTimeout(Duration.ofMillis(50));
+
+        try (ImportAdmission.Permit running = importAdmission.admit(1024)) {
+            assertThrows(ImportRejectedException.class, () -> importAdmission.admit(1024));
+            assertEquals(1, gauge("deals.import.admission.in.flight"));
+        }
+        assertEquals(1, registry.get("deals.import.admission.rejected").tag("reason", "timeout").counter().count());
+    }
+
+    @Test
+    void admit_queuesUploadsInArrivalOrder() throws Exception {
+        importProperties.getAdmission().setMaxQueued(4);
+        List<Integer> admitted = new CopyOnWriteArrayList<>();
+        ImportAdmission.Permit running = importAdmission.admit(1024);
+
+        CompletableFuture<?>[] waiting = new CompletableFuture<?>[3];
+        for (int i = 0; i < waiting.length; i++) {
+            int upload = i;
+            waiting[i] = CompletableFuture.runAsync(() -> {
+                try (ImportAdmission.Permit permit = importAdmission.admit(1024)) {
+                    admitted.add(upload);
+                }
+            });
+            awaitGauge("deals.import.admission.queued", i + 1);
+        }
+        running.close();
+        CompletableFuture.allOf(waiting).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0, 1, 2), admitted);
+    }
+
+    @Test
+    void admit_waitsForMemoryReservedByOtherImports() {
+        ImportProperties.Admission admission = importProperties.getAdmission();
+        admission.setMaxConcurrent(4);
+        admission.setQueueTimeout(Duration.ofMillis(50));
+        admission.setMemoryBudget(DataSize.ofMegabytes(256));
+        admission.setMemoryPerImport(DataSize.ofMegabytes(256));
+        importAdmission = newAdmission();
+
+        // An upload of unknown size reserves the whole per-import budget
+        try (ImportAdmission.Permit unknownSize = importAdmission.admit(-1)) {
+            assertThrows(ImportRejectedException.class, () -> importAdmission.admit(1024));
+        }
+        try (ImportAdmission.Permit small = importAdmission.admit(1024)) {
+            importAdmission.admit(1024).close();
+            assertEquals(1, gauge("deals.import.admission.in.flight"));
+        }
+        assertEquals(0, gauge("deals.import.admission.memory.reserved"));
+    }
+
+    @Test
+    void admit_reservesChunkBuffersForEveryFileImportedInParallel() {
+        importProperties.setChunkSize(4);
+        importProperties.getAdmission().setMaxConcurrent(2);
+        importAdmission = newAdmission();
+
+        // 2 chunks of 4 rows per file, plus the dealIds of the 1 KB upload
+        try (ImportAdmission.Permit single = importAdmission.admit(1024)) {
+            assertEquals(4 * 1024, gauge("deals.import.admission.memory.reserved"));
+        }
+        try (ImportAdmission.Permit archive = importAdmission.admit(1024, 4)) {
+            assertEquals(10 * 1024, gauge("deals.import.admission.memory.reserved"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ImportAdmission newAdmission() {
+        registry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> registryProvider = mock(ObjectProvider.class);
+        when(registryProvider.getIfAvailable(any())).thenReturn(registry);
+        return new ImportAdmission(importProperties, registryProvider);
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private void awaitGauge(String name, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gauge(name) != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, gauge(name));
+    }
+}
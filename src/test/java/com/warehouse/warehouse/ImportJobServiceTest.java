@@ -0,0 +1,132 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.ImportJobDto;
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.exception.ImportCancelledException;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.ImportAdmission;
+import com.warehouse.warehouse.services.ImportContext;
+import com.warehouse.warehouse.services.ImportJob;
+import com.warehouse.warehouse.services.ImportJobService;
+import com.warehouse.warehouse.services.ImportJobStatus;
+import com.warehouse.warehouse.services.IngestEngine;
+import com.warehouse.warehouse.utils.DealIdSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImportJobServiceTest {
+
+    @Mock
+    private DealService dealService;
+
+    private ImportJobService importJobService;
+
+    private final MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "deals.csv",
+            "text/csv",
+            "dealId,fromCurrency,toCurrency,timestamp,amount\n".getBytes()
+    );
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        importJobService = new ImportJobService(dealService, new ImportAdmission(new ImportProperties(),
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class)), new ImportProperties());
+        when(dealService.newContext(any())).thenAnswer(invocation -> new ImportContext(IngestEngine.JPA));
+    }
+
+    @Test
+    void submit_shouldRunImportInBackground() throws Exception {
+        ResultDto expected = ResultDto.builder().saved(3).build();
+        when(dealService.importCsv(any(InputStream.class), any(ImportContext.class))).thenReturn(expected);
+
+        ImportJob job = importJobService.submit(file, null);
+        awaitFinished(job);
+
+        ImportJobDto status = importJobService.toDto(importJobService.get(job.getId()));
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(expected, status.getResult());
+    }
+
+    @Test
+    void cancel_shouldStopRunningImportAtChunkBoundary() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(dealService.importCsv(any(InputStream.class), any(ImportContext.class))).thenAnswer(invocation -> {
+            ImportContext context = invocation.getArgument(1);
+            started.countDown();
+            while (!context.isCancelled()) {
+                Thread.sleep(5);
+            }
+            throw new ImportCancelledException("Import cancelled");
+        });
+
+        ImportJob job = importJobService.submit(file, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        importJobService.cancel(job.getId());
+        awaitFinished(job);
+
+        assertEquals(ImportJobStatus.CANCELLED, job.getStatus());
+    }
+
+    @Test
+    void submitAndCancel_shouldCloseContextsOfJobsThatNeverRun() throws Exception {
+        ImportProperties importProperties = new ImportProperties();
+        importProperties.getJobs().setMaxConcurrent(1);
+        importProperties.getJobs().setQueueCapacity(1);
+        ImportJobService singleSlot = new ImportJobService(dealService, new ImportAdmission(importProperties,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class)), importProperties);
+        DealIdSet queuedIds = mock(DealIdSet.class);
+        DealIdSet rejectedIds = mock(DealIdSet.class);
+        when(dealService.newContext(any())).thenReturn(new ImportContext(IngestEngine.JPA),
+                new ImportContext(IngestEngine.JPA, null, 0, queuedIds),
+                new ImportContext(IngestEngine.JPA, null, 0, rejectedIds));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dealService.importCsv(any(InputStream.class), any(ImportContext.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return ResultDto.builder().build();
+        });
+
+        ImportJob running = singleSlot.submit(file, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ImportJob queued = singleSlot.submit(file, null);
+        assertThrows(RejectedExecutionException.class, () -> singleSlot.submit(file, null));
+        verify(rejectedIds).close();
+
+        singleSlot.cancel(queued.getId());
+        assertEquals(ImportJobStatus.CANCELLED, queued.getStatus());
+        verify(queuedIds).close();
+
+        release.countDown();
+        awaitFinished(running);
+    }
+
+    private void awaitFinished(ImportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.getStatus().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.warehouse.warehouse;
+
+import com.warehouse.warehouse.Dto.ImportCheckpointDto;
+import com.warehouse.warehouse.Dto.ResultDto;
+import com.warehouse.warehouse.Repository.DealRepository;
+import com.warehouse.warehouse.config.CurrencyProperties;
+import com.warehouse.warehouse.config.ImportProperties;
+import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.services.CopyDealWriter;
+import com.warehouse.warehouse.services.DealIdFilter;
+import com.warehouse.warehouse.services.DealRollups;
+import com.warehouse.warehouse.services.DealService;
+import com.warehouse.warehouse.services.ImportAdmission;
+import com.warehouse.warehouse.services.ImportCheckpoints;
+import com.warehouse.warehouse.services.ImportMetrics;
+import com.warehouse.warehouse.services.ImportPipeline;
+import com.warehouse.warehouse.services.ImportReports;
+import com.warehouse.warehouse.utils.CurrencyCsvReader;
+import com.warehouse.warehouse.validation.DealValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "deals.import.chunk-size=3")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DealService.class, CopyDealWriter.class, ImportPipeline.class, ImportReports.class, ImportCheckpoints.class,
+        DealRollups.class, DealIdFilter.class, ImportMetrics.class, ImportAdmission.class, DealValidator.class,
+        CurrencyCsvReader.class, ImportProperties.class, CurrencyProperties.class})
+class ResumableImportTest {
+
+    private static final byte[] CSV = csv();
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private ImportCheckpoints importCheckpoints;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @BeforeEach
+    void seed() {
+        dealRepository.save(Deal.builder().
+                dealId("S1").
+                fromCurrency("USD").
+                toCurrency("EUR").
+                timestamp(LocalDateTime.of(2023, 7, 22, 10, 15, 30)).
+                amount(10_000).
+                build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        dealRepository.deleteAll();
+    }
+
+    @Test
+    void importResumable_resumedRunMatchesCleanRun() throws IOException {
+        ResultDto clean = cleanRun();
+
+        assertThrows(UncheckedIOException.class,
+                () -> dealService.importResumable(interrupted(CSV.length / 2), "resumed", 0, null));
+        ImportCheckpointDto checkpoint = importCheckpoints.find("resumed");
+        assertFalse(checkpoint.isCompleted());
+        assertTrue(checkpoint.getRows() > 0 && checkpoint.getRows() < 20);
+
+        ResultDto resumed = dealService.importResumable(new ByteArrayInputStream(CSV), "resumed", 0, null);
+
+        assertSameResult(clean, resumed);
+        assertEquals(16, dealRepository.count());
+    }
+
+    @Test
+    void importResumable_resumesFromRestOfFile() throws IOException {
+        ResultDto clean = cleanRun();
+
+        assertThrows(UncheckedIOException.class,
+                () -> dealService.importResumable(interrupted(CSV.length / 2), "rest", 0, null));
+        long offset = importCheckpoints.find("rest").getByteOffset();
+        InputStream rest = new ByteArrayInputStream(Arrays.copyOfRange(CSV, (int) offset, CSV.length));
+
+        ResultDto resumed = dealService.importResumable(rest, "rest", offset, null);
+
+        assertSameResult(clean, resumed);
+        assertEquals(16, dealRepository.count());
+    }
+
+    @Test
+    void importResumable_completedImportReturnsItsResultAgain() throws IOException {
+        ResultDto first = dealService.importResumable(new ByteArrayInputStream(CSV), "done", 0, null);
+
+        ResultDto again = dealService.importResumable(interrupted(0), "done", 0, null);
+
+        assertSameResult(first, again);
+        assertEquals(first.getReportUrl(), again.getReportUrl());
+        assertTrue(importCheckpoints.find("done").isCompleted());
+        assertEquals(16, dealRepository.count());
+    }
+
+    @Test
+    void importResumable_rejectsUploadStartingPastCheckpoint() {
+        assertThrows(UncheckedIOException.class,
+                () -> dealService.importResumable(interrupted(CSV.length / 2), "ahead", 0, null));
+        long offset = importCheckpoints.find("ahead").getByteOffset();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> dealService.importResumable(new ByteArrayInputStream(CSV), "ahead", offset + 1, null));
+    }
+
+    @Test
+    void importResumable_keepsDealIdsWithLineBreaksWhole() throws IOException {
+        String head = "dealId,fromCurrency,toCurrency,timestamp,amount\n" +
+                "\"M\nA\",USD,EUR,2023-07-22T10:15:30,1\n\"N\r\nB\",USD,EUR,2023-07-22T10:15:30,1\n" +
+                "D1,USD,EUR,2023-07-22T10:15:30,1\nD2,USD,EUR,2023-07-22T10:15:30,1\n" +
+                "D3,USD,EUR,2023-07-22T10:15:30,1\nD4,USD,EUR,2023-07-22T10:15:30,1\n";
+        String tail = "M,USD,EUR,2023-07-22T10:15:30,1\nA,USD,EUR,2023-07-22T10:15:30,1\n" +
+                "N,USD,EUR,2023-07-22T10:15:30,1\nB,USD,EUR,2023-07-22T10:15:30,1\n" +
+                "\"M\nA\",USD,EUR,2023-07-22T10:15:30,1\nD5,USD,EUR,2023-07-22T10:15:30,1\n";
+        byte[] csv = (head + tail).getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(UncheckedIOException.class,
+                () -> dealService.importResumable(interrupted(csv, head.length()), "line-breaks", 0, null));
+        assertEquals(6, importCheckpoints.find("line-breaks").getRows());
+
+        ResultDto resumed = dealService.importResumable(new ByteArrayInputStream(csv), "line-breaks", 0, null);
+
+        assertEquals(11, resumed.getSaved());
+        assertEquals(1, resumed.getDuplicates());
+        assertEquals(12, dealRepository.count());
+    }
+
+    /**
+     * Imports the file in one run, then puts the table back as it was before.
+     */
+    private ResultDto cleanRun() throws IOException {
+        ResultDto clean = dealService.importResumable(new ByteArrayInputStream(CSV), "clean-" + System.nanoTime(), 0, null);
+        assertEquals(15, clean.getSaved());
+        assertEquals(3, clean.getDuplicates());
+        assertEquals(2, clean.getInvalid());
+        cleanup();
+        seed();
+        return clean;
+    }
+
+    private static void assertSameResult(ResultDto expected, ResultDto actual) {
+        assertEquals(expected.getSaved(), actual.getSaved());
+        assertEquals(expected.getDuplicates(), actual.getDuplicates());
+        assertEquals(expected.getInvalid(), actual.getInvalid());
+        assertEquals(expected.getFailed(), actual.getFailed());
+        assertEquals(expected.getChunks(), actual.getChunks());
+        assertEquals(expected.getErrors(), actual.getErrors());
+        assertEquals(expected.isErrorsTruncated(), actual.isErrorsTruncated());
+        assertEquals(expected.getFailedChunks(), actual.getFailedChunks());
+    }
+
+    /**
+     * The first {@code bytes} of the file, then a dropped connection.
+     */
+    private static InputStream interrupted(int bytes) {
+        return interrupted(CSV, bytes);
+    }
+
+    private static InputStream interrupted(byte[] csv, int bytes) {
+        return new InputStream() {
+            private int read;
+
+            @Override
+            public int read() throws IOException {
+                if (read == bytes) {
+                    throw new IOException("Connection reset");
+                }
+                return csv[read++] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (read == bytes) {
+                    throw new IOException("Connection reset");
+                }
+                int count = Math.min(len, bytes - read);
+                System.arraycopy(csv, read, b, off, count);
+                read += count;
+                return count;
+            }
+        };
+    }
+
+    // 20 rows: S1 stored before, D1 and D9 repeated in the file, two invalid currencies
+    private static byte[] csv() {
+        StringBuilder csv = new StringBuilder("dealId,fromCurrency,toCurrency,timestamp,amount\n");
+        String[] dealIds = {"D1", "D2", "S1", "D3", "X1", "D1", "D4", "D5", "D6", "D7", "D8", "D9", "X2", "D10",
+                "D9", "D11", "D12", "D13", "D14", "D15"};
+        for (String dealId : dealIds) {
+            String from = dealId.startsWith("X") ? "ABC" : "USD";
+            csv.append(dealId).append(',').append(from).append(",EUR,2023-07-22T10:15:30,100.0\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
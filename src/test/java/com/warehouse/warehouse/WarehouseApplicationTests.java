@@ -1,6 +1,7 @@
 package com.warehouse.warehouse;
 
 import com.warehouse.warehouse.models.Deal;
+import com.warehouse.warehouse.utils.Amounts;
 import com.warehouse.warehouse.utils.CurrencyCsvReader;
 import com.warehouse.warehouse.validation.DealValidator;
 import org.junit.jupiter.api.BeforeEach;
@@ -44,7 +45,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now().minusMinutes(1))
-				.amount(100F)
+				.amount(10_000)
 				.build();
 
 		// Act
@@ -62,7 +63,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now())
-				.amount(100F)
+				.amount(10_000)
 				.build();
 
 		// Act
@@ -80,7 +81,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now())
-				.amount(100.0f)
+				.amount(10_000)
 				.build();
 
 		// Act
@@ -98,7 +99,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("XXX") // invalid currency
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now())
-				.amount(100.0f)
+				.amount(10_000)
 				.build();
 
 		// Mock invalid currency
@@ -119,7 +120,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("")
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now())
-				.amount(100F)
+				.amount(10_000)
 				.build();
 
 		// Act
@@ -137,7 +138,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("ZZZ") // invalid currency
 				.timestamp(LocalDateTime.now())
-				.amount(100.0f)
+				.amount(10_000)
 				.build();
 
 		// Mock invalid currency
@@ -158,7 +159,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("")
 				.timestamp(LocalDateTime.now())
-				.amount(100.0f)
+				.amount(10_000)
 				.build();
 
 		// Act
@@ -176,7 +177,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("EUR")
 				.timestamp(null)
-				.amount(100.0f)
+				.amount(10_000)
 				.build();
 
 		// Act
@@ -194,7 +195,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now().plusDays(1))
-				.amount(100.0f)
+				.amount(10_000)
 				.build();
 
 		// Act
@@ -210,7 +211,6 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now())
-				.amount(null)
 				.build();
 
 		String error = dealValidator.validate(deal);
@@ -224,7 +224,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now())
-				.amount(0.0F)
+				.amount(0)
 				.build();
 
 		String error = dealValidator.validate(deal);
@@ -239,7 +239,7 @@ class WarehouseApplicationTests {
 				.fromCurrency("USD")
 				.toCurrency("EUR")
 				.timestamp(LocalDateTime.now())
-				.amount(-100F)
+				.amount(-10_000)
 				.build();
 
 		String error = dealValidator.validate(deal);
@@ -247,5 +247,20 @@ class WarehouseApplicationTests {
 		assertEquals("Amount must be a positive number", error);
 	}
 
+	@Test
+	void shouldReturnErrorWhenAmountHasMoreDecimalsThanCurrency() {
+		Deal deal = Deal.builder()
+				.dealId("123")
+				.fromCurrency("USD")
+				.toCurrency("EUR")
+				.timestamp(LocalDateTime.now())
+				.amount(Amounts.UNREPRESENTABLE)
+				.build();
+
+		String error = dealValidator.validate(deal);
+
+		assertEquals("Amount has more decimals than its currency allows or is too large", error);
+	}
+
 
 }